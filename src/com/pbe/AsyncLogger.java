@@ -0,0 +1,219 @@
+package com.pbe;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Asynchronous logger for catch blocks, so a burst of errors doesn't stall the failing threads on console/file I/O
+// - callers only put (message, argument) into a lock-free ring buffer; turning the argument (e.g. the exception)
+//   into text is left to the drain thread, so the caller doesn't even pay for the string concatenation
+// - one drain thread takes the entries out in batches and writes them through a FileChannel (or any WritableByteChannel)
+// - when the buffer is full, the policy decides: DROP the entry (counted in dropped()) or BLOCK the caller until there's room
+// - close() writes out everything enqueued before it; enqueue() after close() throws IllegalStateException, and log() then
+//   prints to System.out instead, so nothing logged during shutdown gets lost without a trace
+//
+// The catch blocks in the demos call AsyncLogger.log(message, e). That prints straight to System.out as before
+// (so the demo output keeps its order), unless the JVM is started with -Dcom.pbe.asyncLog=<file>, which sends it to
+// a shared AsyncLogger writing that file instead.
+final class AsyncLogger implements AutoCloseable {
+
+    enum FullPolicy { DROP, BLOCK }
+
+    static final int DEFAULT_CAPACITY = 1 << 16;
+    static final int MAX_CAPACITY = 1 << 30;
+    static final int BATCH_BYTES = 64 * 1024;
+    private static final long CLOSED = 1L << 62; // set in tail by close(): no position can be claimed any more
+
+    // Logger used by log(), or null to print to System.out
+    private static final AsyncLogger SHARED = createShared();
+
+    // Ring buffer (multi-producer, single-consumer), after Dmitry Vyukov's bounded queue:
+    // slot i is free for the producer claiming position p when sequence[i] == p,
+    // and holds an entry for the consumer at position p when sequence[i] == p + 1
+    private final int mask;
+    private final String[] messages;
+    private final Object[] args;
+    private final AtomicLongArray sequence;
+    private final AtomicLong tail = new AtomicLong(); // next position to claim by producers, plus CLOSED once closed
+    private volatile long head;                       // next position to read by the drain thread (only written by it)
+
+    private final FullPolicy policy;
+    private final AtomicLong dropped = new AtomicLong();
+    private final WritableByteChannel out;
+    private final Thread drainThread;
+    private volatile long end = -1;                   // the tail when closed: the drain thread stops once it's there
+
+    AsyncLogger(Path file, int capacity, FullPolicy policy) throws IOException {
+        this(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND), capacity, policy);
+    }
+
+    // capacity is rounded up to a power of two, and to at least 2: in a ring of one slot, the sequence value
+    // of a slot holding an entry would be the same as that of the slot free again, see above
+    AsyncLogger(WritableByteChannel out, int capacity, FullPolicy policy) {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("capacity " + capacity + " is not between 1 and " + MAX_CAPACITY);
+        }
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.messages = new String[size];
+        this.args = new Object[size];
+        this.sequence = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequence.set(i, i);
+        }
+        this.policy = policy;
+        this.out = out;
+        this.drainThread = new Thread(this::drain, "async-logger");
+        this.drainThread.setDaemon(true);
+        this.drainThread.start();
+    }
+
+    // Logs the message, or prints it to System.out if no shared AsyncLogger is configured (see above)
+    static void log(String message, Object arg) {
+        if (SHARED != null) {
+            try {
+                SHARED.enqueue(message, arg);
+                return;
+            } catch (IllegalStateException closed) {
+                // logged while the JVM shuts down: print it, as without a shared logger
+            }
+        }
+        System.out.println(message + arg);
+    }
+
+    // Adds "message + arg" to the buffer; returns false if it was dropped because the buffer was full
+    // Throws IllegalStateException if the logger is closed: the entry would never be written
+    boolean enqueue(String message, Object arg) {
+        while (true) {
+            long pos = tail.get();
+            if ((pos & CLOSED) != 0) {
+                throw new IllegalStateException("AsyncLogger is closed");
+            }
+            int index = (int) pos & mask;
+            long seq = sequence.get(index);
+            if (seq == pos) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    messages[index] = message;
+                    args[index] = arg;
+                    sequence.lazySet(index, pos + 1); // publish to the drain thread
+                    return true;
+                }
+            } else if (seq < pos) { // full: the drain thread hasn't freed this slot yet
+                if (policy == FullPolicy.DROP) {
+                    dropped.incrementAndGet();
+                    return false;
+                }
+                LockSupport.parkNanos(10_000);
+            }
+            // else another producer claimed this position first (or close() marked the tail), try again with the new tail
+        }
+    }
+
+    // Number of entries dropped because the buffer was full
+    long dropped() {
+        return dropped.get();
+    }
+
+    // Number of entries waiting to be written
+    long backlog() {
+        return (tail.get() & ~CLOSED) - head;
+    }
+
+    private void drain() {
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        ByteBuffer bytes = ByteBuffer.allocateDirect(BATCH_BYTES);
+        StringBuilder line = new StringBuilder(256);
+        while (true) {
+            long stopAt = end; // read before draining, so nothing enqueued before close() is missed
+            int count = 0;
+            while (true) {
+                int index = (int) head & mask;
+                if (sequence.get(index) != head + 1) {
+                    break; // empty
+                }
+                line.setLength(0);
+                line.append(messages[index]).append(args[index]).append('\n');
+                messages[index] = null;
+                args[index] = null;
+                sequence.lazySet(index, head + mask + 1); // free the slot for the producer one lap further
+                head++;
+                count++;
+                CharBuffer chars = CharBuffer.wrap(line);
+                while (encoder.encode(chars, bytes, true).isOverflow()) {
+                    write(bytes);
+                }
+                encoder.reset();
+            }
+            if (bytes.position() > 0) {
+                write(bytes);
+            }
+            if (stopAt >= 0 && head == stopAt) {
+                return;
+            }
+            if (count == 0) {
+                LockSupport.parkNanos(100_000); // idle
+            }
+        }
+    }
+
+    private void write(ByteBuffer bytes) {
+        bytes.flip();
+        try {
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            System.err.println("AsyncLogger: unable to write log: " + e);
+        }
+        bytes.clear();
+    }
+
+    // Writes everything still in the buffer, stops the drain thread and closes the channel
+    // Marking the tail closes the buffer atomically: an entry is either claimed before it, and written, or rejected.
+    // The drain thread stops once it has written up to that tail, waiting for producers that are still filling in their slot.
+    @Override
+    public void close() throws IOException {
+        long last = tail.getAndUpdate(t -> t | CLOSED);
+        if ((last & CLOSED) != 0) {
+            return; // already closed
+        }
+        end = last;
+        LockSupport.unpark(drainThread);
+        try {
+            drainThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        out.close();
+    }
+
+    private static AsyncLogger createShared() {
+        String file = System.getProperty("com.pbe.asyncLog");
+        if (file == null) {
+            return null;
+        }
+        try {
+            AsyncLogger logger = new AsyncLogger(Path.of(file), DEFAULT_CAPACITY, FullPolicy.DROP);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    logger.close();
+                } catch (IOException e) {
+                    System.err.println("AsyncLogger: unable to close log: " + e);
+                }
+            }));
+            return logger;
+        } catch (IOException e) {
+            System.err.println("AsyncLogger: unable to open " + file + ", logging to System.out: " + e);
+            return null;
+        }
+    }
+}
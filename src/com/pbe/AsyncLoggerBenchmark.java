@@ -0,0 +1,44 @@
+package com.pbe;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Error storm test: the caller's latency of logging a caught exception, synchronous println against AsyncLogger
+// Every op logs one exception, as a catch block in an error burst would. All variants write to a temporary file.
+// - println: a line-flushing PrintStream, which is what System.out is
+// - AsyncLogger with DROP and with BLOCK policy
+// With AsyncLogger the caller only pays for putting the entry in the ring buffer, so its percentiles stay flat,
+// until the buffer is full: then DROP stays flat (and counts what it dropped), while BLOCK makes the caller wait for the drain thread.
+public class AsyncLoggerBenchmark {
+
+    static final int OPS = 200_000;
+
+    public static void main(String[] args) throws IOException {
+        ArithmeticException e = new ArithmeticException("/ by zero");
+
+        Path file = Files.createTempFile("sync", ".log");
+        try (PrintStream sync = new PrintStream(new FileOutputStream(file.toFile()), true)) {
+            Bench.percentiles("println", OPS, i -> {
+                sync.println("Divide by 0: " + e);
+                return i;
+            });
+        }
+        System.out.println("    written: " + Files.size(file) + " bytes");
+        Files.delete(file);
+
+        for (AsyncLogger.FullPolicy policy : AsyncLogger.FullPolicy.values()) {
+            file = Files.createTempFile("async", ".log");
+            AsyncLogger logger = new AsyncLogger(file, AsyncLogger.DEFAULT_CAPACITY, policy);
+            Bench.percentiles("AsyncLogger " + policy, OPS, i -> {
+                logger.enqueue("Divide by 0: ", e);
+                return i;
+            });
+            logger.close();
+            System.out.println("    written: " + Files.size(file) + " bytes, dropped: " + logger.dropped() + " entries");
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.pbe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+// Runs a chain of stages (like ExceptionDemo's compute check, or a divide) over many inputs in parallel,
+// without one bad value failing or holding up the whole run:
+// - every input goes through the stages as its own CompletableFuture on the given executor
+// - an input whose stage throws is reported to the failure side channel (a Consumer of Failure) and left out of the output;
+//   the other inputs carry on
+// - at most maxInFlight inputs are submitted at a time, so a huge batch doesn't become a huge queue of futures
+// - ordered(true) gives the output in input order, otherwise in order of completion (cheaper)
+// - failFast(true) stops at the first failure: nothing new is started (inputs already queued are skipped)
+//   and the output holds what was done by then
+//
+//   List<Integer> out = AsyncPipeline.<Integer>start()
+//           .then(a -> { ExceptionDemo.check(a); return a; })
+//           .then(a -> 1000 / a)
+//           .ordered(true)
+//           .run(inputs, executor, failure -> System.out.println(failure));
+final class AsyncPipeline<I, O> {
+
+    // A step of the pipeline; unlike Function, it may throw a checked exception (such as MyException)
+    interface Stage<A, B> {
+        B apply(A a) throws Exception;
+    }
+
+    // An input that failed, with its position in the input list and the exception of the stage that failed
+    static final class Failure<I> {
+        final int index;
+        final I input;
+        final Throwable error;
+
+        Failure(int index, I input, Throwable error) {
+            this.index = index;
+            this.input = input;
+            this.error = error;
+        }
+
+        public String toString() {
+            return "Failure[" + index + ": " + input + " -> " + error + "]";
+        }
+    }
+
+    static final int DEFAULT_MAX_IN_FLIGHT = 1024;
+
+    private final Stage<I, O> stages;
+    private final boolean ordered;
+    private final boolean failFast;
+    private final int maxInFlight;
+
+    private AsyncPipeline(Stage<I, O> stages, boolean ordered, boolean failFast, int maxInFlight) {
+        this.stages = stages;
+        this.ordered = ordered;
+        this.failFast = failFast;
+        this.maxInFlight = maxInFlight;
+    }
+
+    // An empty pipeline, passing its inputs through unchanged
+    static <I> AsyncPipeline<I, I> start() {
+        return new AsyncPipeline<>(a -> a, false, false, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    // This pipeline followed by the given stage
+    <P> AsyncPipeline<I, P> then(Stage<? super O, ? extends P> next) {
+        Stage<I, O> before = stages;
+        return new AsyncPipeline<>(a -> next.apply(before.apply(a)), ordered, failFast, maxInFlight);
+    }
+
+    AsyncPipeline<I, O> ordered(boolean ordered) {
+        return new AsyncPipeline<>(stages, ordered, failFast, maxInFlight);
+    }
+
+    AsyncPipeline<I, O> failFast(boolean failFast) {
+        return new AsyncPipeline<>(stages, ordered, failFast, maxInFlight);
+    }
+
+    AsyncPipeline<I, O> maxInFlight(int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1, not " + maxInFlight);
+        }
+        return new AsyncPipeline<>(stages, ordered, failFast, maxInFlight);
+    }
+
+    // Runs all inputs through the stages on the executor, reports failures to the side channel, and returns the outputs
+    List<O> run(List<I> inputs, Executor executor, Consumer<? super Failure<I>> failures) throws InterruptedException {
+        int n = inputs.size();
+        Object[] byIndex = ordered ? new Object[n] : null;
+        boolean[] succeeded = ordered ? new boolean[n] : null;
+        ConcurrentLinkedQueue<O> byCompletion = ordered ? null : new ConcurrentLinkedQueue<>();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicBoolean stop = new AtomicBoolean(); // set on the first failure in fail-fast mode
+
+        for (int i = 0; i < n; i++) {
+            inFlight.acquire();
+            if (stop.get()) {
+                inFlight.release();
+                break;
+            }
+            int index = i;
+            I input = inputs.get(i);
+            CompletableFuture.supplyAsync(() -> {
+                if (stop.get()) {
+                    throw new CancellationException(); // submitted before the failure, but not started yet: skip it
+                }
+                try {
+                    return stages.apply(input);
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, executor).whenComplete((value, error) -> {
+                try {
+                    if (error == null) {
+                        if (ordered) {
+                            byIndex[index] = value;
+                            succeeded[index] = true;
+                        } else {
+                            byCompletion.add(value);
+                        }
+                    } else {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                        if (!(cause instanceof CancellationException)) {
+                            if (failFast) {
+                                stop.set(true);
+                            }
+                            failures.accept(new Failure<>(index, input, cause));
+                        }
+                    }
+                } finally {
+                    inFlight.release(); // also when the failure consumer throws, or run() would wait for this permit forever
+                }
+            });
+        }
+        inFlight.acquire(maxInFlight); // wait until everything submitted has completed
+        inFlight.release(maxInFlight);
+
+        if (!ordered) {
+            return new ArrayList<>(byCompletion);
+        }
+        List<O> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            if (succeeded[i]) {
+                @SuppressWarnings("unchecked")
+                O value = (O) byIndex[i];
+                out.add(value);
+            }
+        }
+        return out;
+    }
+
+    // Demo: ExceptionDemo.main's compute(1), compute(20) - but for a batch, where the bad values don't stop the rest
+    public static void main(String[] args) throws InterruptedException {
+        List<Integer> inputs = Arrays.asList(1, 20, 3, 0, 5, 12, 7);
+        AsyncPipeline<Integer, Integer> pipeline = AsyncPipeline.<Integer>start()
+                .then(a -> {
+                    ExceptionDemo.check(a);
+                    return a;
+                })
+                .then(a -> 100 / a);
+        Executor executor = Runnable::run; // in the caller's thread, to keep the demo output simple
+
+        System.out.println("ordered:   " + pipeline.ordered(true).run(inputs, executor, f -> System.out.println("  " + f)));
+        System.out.println("fail-fast: " + pipeline.ordered(true).failFast(true).run(inputs, executor, f -> System.out.println("  " + f)));
+    }
+}
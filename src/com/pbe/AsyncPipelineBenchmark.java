@@ -0,0 +1,48 @@
+package com.pbe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Throughput of AsyncPipeline over a batch of inputs, with the compute check and a divide as stages, 10% failing,
+// on 1 up to N threads (N = the number of available cores), ordered and in completion order
+// Note: the stages are tiny, so this mostly measures the overhead per input of the pipeline itself
+public class AsyncPipelineBenchmark {
+
+    static final int INPUTS = 100_000;
+    static final double FAILURE_RATE = 0.1;
+
+    public static void main(String[] args) throws Exception {
+        boolean[] fail = Bench.failures(INPUTS, FAILURE_RATE);
+        List<Integer> inputs = new ArrayList<>(INPUTS);
+        for (int i = 0; i < INPUTS; i++) {
+            inputs.add(fail[i] ? (i % 2 == 0 ? 20 : 0) : 1 + i % 10); // 20 fails the compute check, 0 fails the divide
+        }
+        AsyncPipeline<Integer, Integer> pipeline = AsyncPipeline.<Integer>start()
+                .then(a -> {
+                    ExceptionDemo.check(a);
+                    return a;
+                })
+                .then(a -> 1_000_000 / a);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println(INPUTS + " inputs, " + (int) (FAILURE_RATE * 100) + "% failing, " + cores + " cores available");
+        for (int threads = 1; threads <= Math.max(2, cores); threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            for (boolean ordered : new boolean[] {true, false}) {
+                AsyncPipeline<Integer, Integer> p = pipeline.ordered(ordered);
+                AtomicLong failures = new AtomicLong();
+                double ns = Bench.time(1, i -> {
+                    try {
+                        return p.run(inputs, pool, f -> failures.incrementAndGet()).size();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                System.out.printf("%2d threads, %-10s %,12.0f inputs/s%n", threads, ordered ? "ordered" : "unordered", INPUTS / (ns / 1e9));
+            }
+            pool.shutdown();
+        }
+    }
+}
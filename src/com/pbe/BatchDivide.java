@@ -0,0 +1,122 @@
+package com.pbe;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Batch version of Main.divideLBYL: divides whole arrays in one pass
+// A zero divisor never throws and never stops the batch: that element gets 0 (as in divideLBYL/divideEAFP)
+// and its index is set in the errors bitmap, so the caller can see exactly which elements failed.
+// Arrays of at least the parallel threshold are split over the common ForkJoinPool.
+public class BatchDivide {
+
+    // Arrays of this size or larger are processed in parallel by default
+    static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 16;
+
+    // Smallest piece of work handed to a fork-join task; a multiple of 64, see DivideTask
+    static final int LEAF_SIZE = 1 << 13;
+
+    // out[i] = x[i] / y[i], or 0 with bit i set in errors when y[i] == 0
+    // Bits 0 to x.length - 1 of errors are overwritten; out must be at least as long as x and y
+    static void divideAll(int[] x, int[] y, int[] out, BitSet errors) {
+        divideAll(x, y, out, errors, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    // Same, with its own threshold for parallel processing (Integer.MAX_VALUE to never go parallel)
+    @HotPath
+    static void divideAll(int[] x, int[] y, int[] out, BitSet errors, int parallelThreshold) {
+        int n = x.length;
+        if (y.length != n || out.length < n) {
+            throw new IllegalArgumentException("array lengths don't match: x " + n + ", y " + y.length + ", out " + out.length);
+        }
+        errors.clear(0, n);
+        if (n < parallelThreshold) {
+            for (int i = 0; i < n; i++) {
+                int d = y[i];
+                if (d != 0) {
+                    out[i] = x[i] / d;
+                } else {
+                    out[i] = 0;
+                    errors.set(i);
+                }
+            }
+        } else {
+            // BitSet is not thread-safe, so the tasks mark errors in a plain long[] of bitmap words instead.
+            // Every task works on whole words (ranges starting at a multiple of 64), so no two tasks ever write the same word.
+            long[] words = new long[(n + 63) >>> 6];
+            ForkJoinPool.commonPool().invoke(new DivideTask(x, y, out, words, 0, n));
+            errors.or(BitSet.valueOf(words));
+        }
+    }
+
+    private static class DivideTask extends RecursiveAction {
+        private final int[] x, y, out;
+        private final long[] words;
+        private final int from, to;
+
+        DivideTask(int[] x, int[] y, int[] out, long[] words, int from, int to) {
+            this.x = x;
+            this.y = y;
+            this.out = out;
+            this.words = words;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                for (int i = from; i < to; i++) {
+                    int d = y[i];
+                    if (d != 0) {
+                        out[i] = x[i] / d;
+                    } else {
+                        out[i] = 0;
+                        words[i >>> 6] |= 1L << i;
+                    }
+                }
+            } else {
+                int mid = (from + (to - from) / 2) & ~63; // split on a word boundary
+                invokeAll(new DivideTask(x, y, out, words, from, mid), new DivideTask(x, y, out, words, mid, to));
+            }
+        }
+    }
+
+    // Checks divideAll against Main.divideLBYL, sequential and parallel, and compares their speed
+    public static void main(String[] args) {
+        int n = 4_000_000;
+        Random random = new Random(42);
+        int[] x = new int[n];
+        int[] y = new int[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = random.nextInt();
+            y[i] = random.nextInt(10) == 0 ? 0 : random.nextInt(); // about 10% zero divisors
+        }
+        int[] out = new int[n];
+        BitSet errors = new BitSet(n);
+
+        for (int threshold : new int[] {Integer.MAX_VALUE, DEFAULT_PARALLEL_THRESHOLD}) {
+            divideAll(x, y, out, errors, threshold);
+            int mismatches = 0;
+            for (int i = 0; i < n; i++) {
+                if (out[i] != Main.divideLBYL(x[i], y[i]) || errors.get(i) != (y[i] == 0)) {
+                    mismatches++;
+                }
+            }
+            String mode = threshold == Integer.MAX_VALUE ? "sequential" : "parallel  ";
+            System.out.println(mode + ": " + errors.cardinality() + " division-by-zero elements, " + mismatches + " mismatches with divideLBYL");
+            Bench.run("divideAll " + mode + ", 4M elements", 1, i -> {
+                divideAll(x, y, out, errors, threshold);
+                return out[i];
+            });
+        }
+        Bench.run("divideLBYL loop, 4M elements", 1, i -> {
+            int sum = 0;
+            for (int j = 0; j < n; j++) {
+                sum += Main.divideLBYL(x[j], y[j]);
+            }
+            return sum;
+        });
+    }
+}
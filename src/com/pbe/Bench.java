@@ -0,0 +1,127 @@
+package com.pbe;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+// Small timing harness used by the benchmark classes in this package
+// The project is a plain source tree without a build tool, so instead of JMH this does the basics by hand:
+// warm-up rounds, measured rounds, ns/op and allocated bytes/op (the same number JMH's gc profiler reports as gc.alloc.rate.norm)
+// Each measured op gets an index i, so a benchmark can walk a precomputed input array (e.g. with a given failure rate)
+class Bench {
+
+    static final int WARMUP_ROUNDS = 5;
+    static final int MEASURED_ROUNDS = 5;
+
+    // Results are written here so the JIT can't remove the measured work as dead code
+    static volatile long sink;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Runs op 'ops' times per round and prints the best round's ns/op plus the allocated bytes/op
+    // Returns the best ns/op, for benchmarks that derive other figures from it
+    static double run(String label, int ops, IntUnaryOperator op) {
+        double[] result = measure(ops, op);
+        System.out.printf("%-40s %10.2f ns/op %10.1f B/op%n", label, result[0], result[1]);
+        return result[0];
+    }
+
+    // Same as run(), without printing: returns the best ns/op
+    static double time(int ops, IntUnaryOperator op) {
+        return measure(ops, op)[0];
+    }
+
+    // Returns {best ns/op, allocated bytes/op}
+    private static double[] measure(int ops, IntUnaryOperator op) {
+        double bestNs = Double.MAX_VALUE;
+        double bytes = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long acc = 0;
+            long allocBefore = allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < ops; i++) {
+                acc += op.applyAsInt(i);
+            }
+            long elapsed = System.nanoTime() - start;
+            long allocated = allocatedBytes() - allocBefore;
+            sink = acc;
+            if (round >= WARMUP_ROUNDS) {
+                bestNs = Math.min(bestNs, (double) elapsed / ops);
+                bytes = (double) allocated / ops;
+            }
+        }
+        return new double[] {bestNs, bytes};
+    }
+
+    // Like run(), but times every single op and reports latency percentiles instead of an average
+    static void percentiles(String label, int ops, IntUnaryOperator op) {
+        long[] samples = new long[ops];
+        for (int round = 0; round < WARMUP_ROUNDS + 1; round++) {
+            long acc = 0;
+            for (int i = 0; i < ops; i++) {
+                long start = System.nanoTime();
+                acc += op.applyAsInt(i);
+                samples[i] = System.nanoTime() - start;
+            }
+            sink = acc;
+        }
+        Arrays.sort(samples);
+        System.out.printf("%-40s p50 %6d ns  p99 %6d ns  p99.9 %6d ns%n", label,
+                samples[(int) (ops * 0.50)], samples[(int) (ops * 0.99)], samples[(int) (ops * 0.999)]);
+    }
+
+    // Burns CPU for a while, in proportion to tokens, like JMH's Blackhole.consumeCPU(): stands in for 'real work' in a benchmark
+    static long consumeCpu(int tokens) {
+        long x = tokens;
+        for (int i = 0; i < tokens; i++) {
+            x = x * 6364136223846793005L + 1442695040888963407L;
+        }
+        sink = x;
+        return x;
+    }
+
+    // Bytes allocated so far by the current thread, or 0 if the JVM doesn't support the measurement
+    static long allocatedBytes() {
+        return THREADS.isThreadAllocatedMemorySupported()
+                ? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    // Builds an input pattern of n entries where roughly failureRate (0.0 - 1.0) of them are marked as failing
+    // The failures are spread evenly, so the pattern is the same on every run
+    static boolean[] failures(int n, double failureRate) {
+        boolean[] fail = new boolean[n];
+        double acc = 0;
+        for (int i = 0; i < n; i++) {
+            acc += failureRate;
+            if (acc >= 1.0) {
+                fail[i] = true;
+                acc -= 1.0;
+            }
+        }
+        return fail;
+    }
+
+    // Starts the main class again in a fresh JVM with extra JVM options (JMH calls this a 'fork') and waits for it
+    // Used to compare runs with different JVM flags, such as -XX:-OmitStackTraceInFastThrow
+    static void fork(Class<?> mainClass, List<String> jvmArgs, String... args) {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        cmd.addAll(jvmArgs);
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add(mainClass.getName());
+        cmd.addAll(Arrays.asList(args));
+        try {
+            int exit = new ProcessBuilder(cmd).inheritIO().start().waitFor();
+            if (exit != 0) {
+                System.out.println("Forked run exited with code " + exit);
+            }
+        } catch (Exception e) {
+            System.out.println("Unable to fork benchmark JVM: " + e);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.pbe;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+// Bulk version of Main.getIntLBYL: validates and parses a whole buffer or file of integer tokens at once
+// - tokens are separated by whitespace (any byte up to ' ', as in IntParser) or ','; a token is an optional sign and digits
+// - a bad token (anything else in it, or a number outside the int range) doesn't throw and doesn't stop the parse:
+//   its offset (in bytes from the start of the input) is added to the list of bad offsets, and the parse goes on
+// - the input is cut into chunks, each ending on a delimiter so no token is split, and the chunks are parsed in parallel
+//   on a ForkJoinPool; the results are put back together in input order
+// - digits are checked and converted 8 bytes at a time (SWAR: SIMD within a register): one long holds 8 input bytes,
+//   a few arithmetic operations tell which of them are digits, and three multiplications turn up to 8 digits into a number,
+//   instead of a test and a multiply-add per byte as in getIntLBYL
+// Files are memory-mapped per chunk (FileChannel.map), so inputs bigger than 2 GB work too, without reading them into the heap.
+final class BulkIntParser {
+
+    static final int DEFAULT_CHUNK_BYTES = 8 << 20;
+
+    // Parsed values of the valid tokens, in input order, and the offsets of the bad tokens
+    static final class Result {
+        final int[] values;
+        final long[] badOffsets;
+
+        Result(int[] values, long[] badOffsets) {
+            this.values = values;
+            this.badOffsets = badOffsets;
+        }
+
+        public String toString() {
+            return values.length + " values, " + badOffsets.length + " bad tokens";
+        }
+    }
+
+    private BulkIntParser() {
+    }
+
+    // Parses the remaining bytes of the buffer (its position isn't changed)
+    static Result parse(ByteBuffer input) {
+        return parse(input, DEFAULT_CHUNK_BYTES, ForkJoinPool.commonPool());
+    }
+
+    static Result parse(ByteBuffer input, int chunkBytes, ForkJoinPool pool) {
+        ByteBuffer in = input.slice().order(ByteOrder.LITTLE_ENDIAN);
+        long[] bounds = chunkBounds(in.limit(), chunkBytes, i -> in.get((int) i));
+        List<Chunk> chunks = new ArrayList<>();
+        for (int c = 0; c + 1 < bounds.length; c++) {
+            int from = (int) bounds[c];
+            int to = (int) bounds[c + 1];
+            chunks.add(new Chunk(bounds[c], () -> in.slice(from, to - from).order(ByteOrder.LITTLE_ENDIAN)));
+        }
+        return run(chunks, pool);
+    }
+
+    // Parses a file, mapping it chunk by chunk
+    static Result parse(Path file) throws IOException {
+        return parse(file, DEFAULT_CHUNK_BYTES, ForkJoinPool.commonPool());
+    }
+
+    static Result parse(Path file, int chunkBytes, ForkJoinPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer probe = ByteBuffer.allocate(1);
+            long[] bounds = chunkBounds(channel.size(), chunkBytes, i -> {
+                probe.clear();
+                channel.read(probe, i);
+                return probe.get(0);
+            });
+            List<Chunk> chunks = new ArrayList<>();
+            for (int c = 0; c + 1 < bounds.length; c++) {
+                long from = bounds[c];
+                long to = bounds[c + 1];
+                chunks.add(new Chunk(from, () -> channel.map(FileChannel.MapMode.READ_ONLY, from, to - from).order(ByteOrder.LITTLE_ENDIAN)));
+            }
+            return run(chunks, pool);
+        }
+    }
+
+    private interface ByteAt {
+        byte get(long index) throws IOException;
+    }
+
+    private interface Source {
+        ByteBuffer open() throws IOException;
+    }
+
+    // Chunk boundaries: about every chunkBytes, each moved forward to just after a delimiter
+    // A chunk is at most Integer.MAX_VALUE bytes, as it's parsed from one ByteBuffer
+    private static long[] chunkBounds(long size, int chunkBytes, ByteAt byteAt) {
+        int step = Math.max(1, Math.min(chunkBytes, Integer.MAX_VALUE - 64));
+        long[] bounds = new long[(int) (size / step) + 2];
+        int n = 0;
+        bounds[n++] = 0;
+        long at = step;
+        try {
+            while (at < size) {
+                while (at < size && !isDelimiter(byteAt.get(at - 1))) { // at most the length of one token
+                    at++;
+                }
+                if (at < size && at > bounds[n - 1]) {
+                    bounds[n++] = at;
+                }
+                at += step;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        bounds[n++] = size;
+        return Arrays.copyOf(bounds, n);
+    }
+
+    private static Result run(List<Chunk> chunks, ForkJoinPool pool) {
+        if (chunks.size() == 1) {
+            chunks.get(0).invoke(); // no need to involve the pool
+        } else {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    ForkJoinTask.invokeAll(chunks);
+                }
+            });
+        }
+        int values = 0;
+        int bad = 0;
+        for (Chunk c : chunks) {
+            if (c.error != null) {
+                throw new IllegalStateException("can't read chunk at " + c.base, c.error);
+            }
+            values += c.count;
+            bad += c.badCount;
+        }
+        int[] allValues = new int[values];
+        long[] allBad = new long[bad];
+        values = 0;
+        bad = 0;
+        for (Chunk c : chunks) {
+            System.arraycopy(c.values, 0, allValues, values, c.count);
+            System.arraycopy(c.bad, 0, allBad, bad, c.badCount);
+            values += c.count;
+            bad += c.badCount;
+        }
+        return new Result(allValues, allBad);
+    }
+
+    private static final class Chunk extends RecursiveAction {
+        final long base;
+        final Source source;
+        int[] values;
+        int count;
+        long[] bad = new long[16];
+        int badCount;
+        IOException error;
+
+        Chunk(long base, Source source) {
+            this.base = base;
+            this.source = source;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                ByteBuffer in = source.open();
+                values = new int[Math.max(16, in.limit() / 4)]; // grows if needed
+                parseChunk(in);
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+
+        private void parseChunk(ByteBuffer in) {
+            int limit = in.limit();
+            int i = 0;
+            while (i < limit) {
+                byte b = in.get(i);
+                if (isDelimiter(b)) {
+                    i++;
+                    continue;
+                }
+                int start = i;
+                boolean negative = b == '-';
+                if (b == '-' || b == '+') {
+                    i++;
+                }
+                long value = 0; // stops growing once it's out of the int range: the token is bad then anyway
+                int digits = 0;
+                int end = -1;   // the byte after the digits, -1 if not known yet
+                // 8 bytes at a time, while there are 8 bytes left
+                while (i + 8 <= limit) {
+                    long word = in.getLong(i);
+                    long t = word ^ 0x3030303030303030L;                 // digit bytes become their value 0..9
+                    long nonDigit = (((t & 0x7F7F7F7F7F7F7F7FL) + 0x7676767676767676L) | t) & 0x8080808080808080L;
+                    int n = Long.numberOfTrailingZeros(nonDigit) >>> 3;  // digits before the first non-digit (8 if none)
+                    // the n digits moved up to the top of the word, zeros below them; no branches on the token's length
+                    value = value * POW10[n] + eightDigits((t << ((8 - n) << 3)) & KEEP[n]);
+                    digits += n;
+                    i += n;
+                    if (n < 8) {
+                        end = (int) (word >>> (n << 3)) & 0xFF; // already in the word: no need to read it again
+                        break;
+                    }
+                    if (value > 2147483648L) {
+                        break;
+                    }
+                }
+                if (end < 0) {
+                    // the rest, byte by byte, near the end of the chunk
+                    while (i < limit && value <= 2147483648L) {
+                        int d = in.get(i) - '0';
+                        if (d < 0 || d > 9) {
+                            break;
+                        }
+                        value = value * 10 + d;
+                        digits++;
+                        i++;
+                    }
+                    end = i < limit ? in.get(i) & 0xFF : ' ';
+                }
+                boolean valid = digits > 0 && isDelimiter((byte) end)
+                        && value <= (negative ? 2147483648L : Integer.MAX_VALUE);
+                if (valid) {
+                    if (count == values.length) {
+                        values = Arrays.copyOf(values, count * 2);
+                    }
+                    values[count++] = (int) (negative ? -value : value);
+                    i++; // the delimiter after it
+                } else {
+                    if (badCount == bad.length) {
+                        bad = Arrays.copyOf(bad, badCount * 2);
+                    }
+                    bad[badCount++] = base + start;
+                    while (i < limit && !isDelimiter(in.get(i))) { // skip the rest of the bad token
+                        i++;
+                    }
+                }
+            }
+        }
+    }
+
+    private static final long[] POW10 = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000, 100_000_000};
+    private static final long[] KEEP = {0, -1, -1, -1, -1, -1, -1, -1, -1}; // no digits: a shift by 64 shifts by 0 in Java
+
+    // The number formed by 8 digit values (0..9), first digit in the lowest byte (after Daniel Lemire's method)
+    private static long eightDigits(long t) {
+        t = (t * 10) + (t >>> 8);                      // pairs of digits
+        t = (((t & 0x000000FF000000FFL) * (100 + (1_000_000L << 32)))
+                + (((t >>> 16) & 0x000000FF000000FFL) * (1 + (10_000L << 32)))) >>> 32;
+        return t;
+    }
+
+    // Unsigned, as in IntParser: bytes from 0x80 up (non-ASCII) are not whitespace, they make a token bad
+    private static boolean isDelimiter(byte b) {
+        return (b & 0xFF) <= ' ' || b == ',';
+    }
+}
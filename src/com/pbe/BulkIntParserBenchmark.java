@@ -0,0 +1,190 @@
+package com.pbe;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+// Benchmark of BulkIntParser on a generated file of random integers, of which BAD_RATE are malformed or too large
+// Reports MB/s for:
+// - memory read: summing the mapped file as longs, about the best any parser of it can do
+// - getIntLBYL style: per token a String, a Character.isDigit loop, Integer.parseInt (on a part of the file, scaled up)
+// - IntParser, reading the file through its channel
+// - BulkIntParser on a pool of 1 thread, and on the common pool (parallelism per core count)
+// and checks that BulkIntParser finds the same values and the same number of bad tokens as IntParser.
+// Start with the file size in MB as argument (default 128); the file is deleted afterwards.
+public class BulkIntParserBenchmark {
+
+    static final double BAD_RATE = 0.001;
+
+    public static void main(String[] args) throws IOException {
+        long size = (args.length > 0 ? Long.parseLong(args[0]) : 128) << 20;
+        Path file = Files.createTempFile("ints", ".txt");
+        try {
+            generate(file, size);
+            size = Files.size(file);
+            System.out.printf("%,d bytes, %d cores%n", size, Runtime.getRuntime().availableProcessors());
+            check(file);
+
+            long bytes = size;
+            report("memory read", bytes, Bench.time(1, i -> memoryRead(file)));
+            int lbylBytes = (int) Math.min(bytes, 8 << 20);
+            report("getIntLBYL style", lbylBytes, Bench.time(1, i -> lbyl(file, lbylBytes)));
+            report("IntParser", bytes, Bench.time(1, i -> intParser(file)));
+            ForkJoinPool single = new ForkJoinPool(1);
+            report("BulkIntParser, 1 thread", bytes, Bench.time(1, i -> bulk(file, single)));
+            report("BulkIntParser, common pool (" + ForkJoinPool.getCommonPoolParallelism() + ")", bytes,
+                    Bench.time(1, i -> bulk(file, ForkJoinPool.commonPool())));
+            single.shutdown();
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    // Random ints of all sizes, one in 1/BAD_RATE replaced by a bad token; 10 per line, separated by spaces
+    static void generate(Path file, long size) throws IOException {
+        Random random = new Random(42);
+        long written = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            for (int i = 0; written < size; i++) {
+                String token;
+                if (random.nextDouble() < BAD_RATE) {
+                    switch (random.nextInt(3)) {
+                        case 0:
+                            token = "12x" + i;                // malformed
+                            break;
+                        case 1:
+                            token = "12\u00e9" + i;          // malformed, with a non-ASCII character (2 bytes in UTF-8)
+                            break;
+                        default:
+                            token = "9" + Integer.MAX_VALUE;  // out of range
+                    }
+                } else {
+                    token = Integer.toString(random.nextInt() >> random.nextInt(32));
+                }
+                out.write(token);
+                out.write(i % 10 == 9 ? '\n' : ' ');
+                written += token.length() + 1;
+            }
+        }
+    }
+
+    // Compares BulkIntParser's result with IntParser's, value by value; exits with code 1 if they differ
+    static void check(Path file) throws IOException {
+        BulkIntParser.Result result = BulkIntParser.parse(file, 1 << 20, ForkJoinPool.commonPool());
+        int bad = 0;
+        int count = 0;
+        boolean same = true;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            IntParser p = new IntParser(channel);
+            int status;
+            while ((status = p.next()) != IntParser.EOF) {
+                if (status != IntParser.OK) {
+                    bad++;
+                } else if (count >= result.values.length || result.values[count++] != p.value()) {
+                    same = false;
+                }
+            }
+        }
+        same &= count == result.values.length && bad == result.badOffsets.length;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer token = ByteBuffer.allocate(3);
+            for (long offset : result.badOffsets) { // each should be the start of a bad token: "12x...", "12" and a non-ASCII character, or "92147483647"
+                token.clear();
+                if (offset == 0) {
+                    token.put((byte) ' '); // the start of the file counts as a delimiter
+                }
+                channel.read(token, offset - 1 + token.position());
+                same &= token.get(0) <= ' ' && (token.get(1) == '1' && token.get(2) == '2' || token.get(1) == '9' && token.get(2) == '2');
+            }
+        }
+        System.out.println("BulkIntParser: " + result + "; IntParser: " + count + " values, " + bad + " bad tokens");
+        if (!same) {
+            System.out.println("FAILED: results differ");
+            System.exit(1);
+        }
+    }
+
+    static int memoryRead(Path file) {
+        long sum = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long at = 0; at < size; at += 1 << 30) {
+                MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, at, Math.min(1 << 30, size - at));
+                ByteBuffer in = map.order(ByteOrder.LITTLE_ENDIAN);
+                int limit = in.limit() & ~7;
+                for (int i = 0; i < limit; i += 8) {
+                    sum += in.getLong(i);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return (int) sum;
+    }
+
+    static int lbyl(Path file, int bytes) {
+        int sum = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, bytes);
+            byte[] text = new byte[bytes];
+            in.get(text);
+            for (String token : new String(text).split("[ \n]")) {
+                boolean isValid = !token.isEmpty();
+                for (int i = 0; i < token.length(); i++) {
+                    char c = token.charAt(i);
+                    if (!Character.isDigit(c) && !(i == 0 && c == '-' && token.length() > 1)) {
+                        isValid = false;
+                        break;
+                    }
+                }
+                if (isValid) {
+                    try {
+                        sum += Integer.parseInt(token); // isDigit doesn't catch out of range numbers
+                    } catch (NumberFormatException e) {
+                        sum--;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return sum;
+    }
+
+    static int intParser(Path file) {
+        int sum = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            IntParser p = new IntParser(channel);
+            int status;
+            while ((status = p.next()) != IntParser.EOF) {
+                if (status == IntParser.OK) {
+                    sum += p.value();
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return sum;
+    }
+
+    static int bulk(Path file, ForkJoinPool pool) {
+        try {
+            BulkIntParser.Result result = BulkIntParser.parse(file, BulkIntParser.DEFAULT_CHUNK_BYTES, pool);
+            return result.values.length + result.badOffsets.length;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static void report(String label, long bytes, double nsPerParse) {
+        System.out.printf("%-40s %,10.0f MB/s%n", label, bytes / (nsPerParse / 1e9) / (1 << 20));
+    }
+}
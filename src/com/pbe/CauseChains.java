@@ -0,0 +1,203 @@
+package com.pbe;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+// Analysis of chained exceptions: the getCause() chain and the getSuppressed() exceptions hanging off it
+// Everything here works without recursion (so a chain 10,000 levels deep can't cause a StackOverflowError),
+// copes with cycles (a cause chain can be made circular with initCause), and uses bounded memory:
+// - rootCause() and signature() follow the cause chain with Floyd's cycle detection: O(1) extra memory, whatever the depth
+// - analyze() also visits suppressed exceptions (and their causes), but at most maxNodes of them;
+//   the memory it uses is capped by that number, and the result says if it had to stop early.
+//   One exception to the cap: getSuppressed() always returns a copy of the whole array (the JDK has no way to read a part
+//   of it), so every exception visited costs a copy of its own suppressed list, however long; analyze() only counts and
+//   visits as many of them as still fit under maxNodes, and asks no further exception for its list once the limit is hit
+final class CauseChains {
+
+    static final int DEFAULT_MAX_NODES = 10_000;
+    static final int MAX_SIGNATURE_PARTS = 16;
+
+    private CauseChains() {
+    }
+
+    // The last exception in t's cause chain; when the chain is a cycle, the exception where the cycle starts
+    static Throwable rootCause(Throwable t) {
+        Throwable cycleStart = cycleStart(t);
+        if (cycleStart != null) {
+            return cycleStart;
+        }
+        Throwable current = t;
+        while (current.getCause() != null) {
+            current = current.getCause();
+        }
+        return current;
+    }
+
+    // Where the cause chain of t starts going round in circles, or null if it ends (Floyd's tortoise and hare)
+    static Throwable cycleStart(Throwable t) {
+        Throwable slow = t;
+        Throwable fast = t;
+        while (fast != null && fast.getCause() != null) {
+            slow = slow.getCause();
+            fast = fast.getCause().getCause();
+            if (slow == fast) {
+                slow = t;
+                while (slow != fast) {
+                    slow = slow.getCause();
+                    fast = fast.getCause();
+                }
+                return slow;
+            }
+        }
+        return null;
+    }
+
+    // Classification of the cause chain by exception types, with repeats collapsed, e.g.
+    // "RuntimeException <- IllegalStateException x9998 <- ArithmeticException"
+    // Chains with the same signature fail in the same way; the length of the signature is bounded by MAX_SIGNATURE_PARTS
+    static String signature(Throwable t) {
+        Throwable cycleStart = cycleStart(t);
+        StringBuilder sb = new StringBuilder();
+        int parts = 0;
+        boolean passedCycleStart = false;
+        Throwable current = t;
+        while (current != null) {
+            if (current == cycleStart) {
+                if (passedCycleStart) {
+                    sb.append(" <- (cycle)");
+                    break;
+                }
+                passedCycleStart = true;
+            }
+            Class<?> type = current.getClass();
+            int repeats = 1;
+            while (current.getCause() != null && current.getCause().getClass() == type && current.getCause() != cycleStart) {
+                current = current.getCause();
+                repeats++;
+            }
+            if (parts == MAX_SIGNATURE_PARTS) {
+                sb.append(" <- ...");
+                break;
+            }
+            if (parts++ > 0) {
+                sb.append(" <- ");
+            }
+            sb.append(type.getSimpleName());
+            if (repeats > 1) {
+                sb.append(" x").append(repeats);
+            }
+            current = current.getCause();
+        }
+        return sb.toString();
+    }
+
+    // Outcome of analyze()
+    static final class Analysis {
+        final Throwable rootCause;
+        final String signature;
+        final int causeDepth;       // length of the cause chain (up to the start of a cycle, if any)
+        final boolean cycle;        // the cause chain is circular
+        final long suppressed;      // suppressed exceptions counted (no more than fit under maxNodes)
+        final int visited;          // exceptions visited in total
+        final boolean truncated;    // stopped at maxNodes, there is more
+
+        Analysis(Throwable rootCause, String signature, int causeDepth, boolean cycle, long suppressed, int visited, boolean truncated) {
+            this.rootCause = rootCause;
+            this.signature = signature;
+            this.causeDepth = causeDepth;
+            this.cycle = cycle;
+            this.suppressed = suppressed;
+            this.visited = visited;
+            this.truncated = truncated;
+        }
+
+        public String toString() {
+            return "Analysis[root " + rootCause + ", depth " + causeDepth + (cycle ? " (cycle)" : "") + ", suppressed " + suppressed
+                    + ", visited " + visited + (truncated ? " (truncated)" : "") + ", signature " + signature + "]";
+        }
+    }
+
+    static Analysis analyze(Throwable t) {
+        return analyze(t, DEFAULT_MAX_NODES);
+    }
+
+    // Walks the whole graph of causes and suppressed exceptions, visiting at most maxNodes exceptions
+    static Analysis analyze(Throwable t, int maxNodes) {
+        Throwable cycleStart = cycleStart(t);
+        int depth = 0;
+        boolean passedCycleStart = false;
+        for (Throwable c = t; c != null; c = c.getCause()) {
+            if (c == cycleStart) {
+                if (passedCycleStart) {
+                    break;
+                }
+                passedCycleStart = true;
+            }
+            depth++;
+        }
+
+        Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayDeque<Throwable> toVisit = new ArrayDeque<>();
+        toVisit.push(t);
+        long suppressed = 0;
+        boolean truncated = false;
+        while (!toVisit.isEmpty()) {
+            Throwable current = toVisit.pop();
+            if (seen.contains(current)) {
+                continue; // cycle, or reachable along two paths
+            }
+            if (seen.size() >= maxNodes) {
+                truncated = true;
+                break;
+            }
+            seen.add(current);
+            Throwable[] s = current.getSuppressed(); // a copy of the whole array, see above
+            int take = Math.min(s.length, Math.max(0, maxNodes - seen.size() - toVisit.size()));
+            if (take < s.length) {
+                truncated = true;
+            }
+            suppressed += take;
+            for (int i = take - 1; i >= 0; i--) {
+                toVisit.push(s[i]);
+            }
+            if (current.getCause() != null) {
+                toVisit.push(current.getCause());
+            }
+        }
+        return new Analysis(rootCause(t), signature(t), depth, cycleStart != null, suppressed, seen.size(), truncated);
+    }
+
+    // Synthetic chains: 10,000 levels deep, circular, and with 100,000 suppressed exceptions
+    // Shows the time and the memory allocated by each analysis
+    public static void main(String[] args) {
+        Throwable deep = new ArithmeticException("/ by zero");
+        for (int i = 0; i < 10_000; i++) {
+            deep = new IllegalStateException("level " + i, deep); // like throwtest's rethrow, but wrapped every time
+        }
+        deep = new RuntimeException("top", deep);
+        report("10k deep", deep);
+
+        RuntimeException a = new RuntimeException("a");
+        RuntimeException b = new RuntimeException("b", a);
+        IllegalStateException c = new IllegalStateException("c", b);
+        a.initCause(c); // a -> c -> b -> a
+        report("cycle", new RuntimeException("top", b));
+
+        Exception many = new Exception("many suppressed");
+        for (int i = 0; i < 100_000; i++) {
+            many.addSuppressed(new IllegalStateException("close failed " + i, null));
+        }
+        report("100k suppressed", many);
+    }
+
+    private static void report(String label, Throwable t) {
+        long allocated = Bench.allocatedBytes();
+        long start = System.nanoTime();
+        Analysis analysis = analyze(t);
+        long elapsed = System.nanoTime() - start;
+        allocated = Bench.allocatedBytes() - allocated;
+        System.out.printf("%-16s %,10d us %,12d bytes  %s%n", label, elapsed / 1000, allocated, analysis);
+    }
+}
@@ -0,0 +1,138 @@
+package com.pbe;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MutableCallSite;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Precondition and invariant checks that can be switched on and off at runtime, per package, instead of assert
+// (which depends on the JVM-wide -ea flag, can't be changed once running, and can only throw AssertionError):
+//
+//   static final Checks CHECKS = Checks.of(Main.class);
+//   ...
+//   if (CHECKS.on() && n <= 0) CHECKS.violated("n > 0, but n is " + n);
+//
+// - when checks are off, on() is a constant false for the JIT, so the whole if statement, condition and message included,
+//   is compiled away: the same machine code as without the check
+// - how: on() calls the target of a MutableCallSite, which is a method handle returning a constant. The JIT inlines that
+//   constant and records that the code depends on the call site; switching the package on or off sets a new target,
+//   which makes the JVM throw away (deoptimize) the code compiled with the old one, so the change takes effect at once
+//   (a SwitchPoint could only do this once, a MutableCallSite can be switched back and forth)
+// - for the JIT to see the call site as a constant, it must be reached through constants: Checks is a record because the
+//   JIT trusts the final fields of records, just like static final fields (final fields of ordinary classes it doesn't)
+// - a violation either throws IllegalStateException (Mode.THROW) or is only counted (Mode.COUNT), as set per package
+// - -Dcom.pbe.checks.compiled=false switches all checks off for good: COMPILED is a static final, so the checks are
+//   then removed without even depending on a call site
+// Packages are switched with enable/disable, for a package and all packages under it, or at start-up with
+// -Dcom.pbe.checks=<package>[:count],... (e.g. -Dcom.pbe.checks=com.pbe:count)
+record Checks(String packageName, MethodHandle enabled, Checks.State state) {
+
+    static final boolean COMPILED = !"false".equals(System.getProperty("com.pbe.checks.compiled"));
+
+    enum Mode { THROW, COUNT }
+
+    private static final MethodHandle ON = MethodHandles.constant(boolean.class, true);
+    private static final MethodHandle OFF = MethodHandles.constant(boolean.class, false);
+
+    // Per package: the call site, the mode and the violations counted
+    static final class State {
+        final MutableCallSite site = new MutableCallSite(OFF);
+        volatile Mode mode = Mode.THROW;
+        final LongAdder violations = new LongAdder();
+    }
+
+    private static final Map<String, State> PACKAGES = new TreeMap<>();
+    private static final Map<String, Mode> SETTINGS = new TreeMap<>(); // enabled prefixes; a null Mode means disabled
+
+    static {
+        String setting = System.getProperty("com.pbe.checks");
+        if (setting != null) {
+            for (String entry : setting.split(",")) {
+                String[] parts = entry.trim().split(":");
+                enable(parts[0], parts.length > 1 && parts[1].equals("count") ? Mode.COUNT : Mode.THROW);
+            }
+        }
+    }
+
+    // The checks of the package of the given class; keep them in a static final field
+    static Checks of(Class<?> type) {
+        return of(type.getPackageName());
+    }
+
+    static synchronized Checks of(String packageName) {
+        State state = PACKAGES.get(packageName);
+        if (state == null) {
+            state = new State();
+            PACKAGES.put(packageName, state);
+            apply(packageName, state);
+        }
+        return new Checks(packageName, state.site.dynamicInvoker(), state);
+    }
+
+    // Whether checks are on for this package
+    boolean on() {
+        if (!COMPILED) {
+            return false;
+        }
+        try {
+            return (boolean) enabled.invokeExact();
+        } catch (Throwable t) {
+            throw new IllegalStateException(t); // a constant method handle doesn't throw
+        }
+    }
+
+    // Reports a failed check: throws IllegalStateException, or only counts it, depending on the package's mode
+    void violated(String message) {
+        state.violations.increment();
+        if (state.mode == Mode.THROW) {
+            throw new IllegalStateException("check failed: " + message);
+        }
+    }
+
+    long violations() {
+        return state.violations.sum();
+    }
+
+    // Switches checks on for the package and the packages under it
+    static synchronized void enable(String packagePrefix, Mode mode) {
+        set(packagePrefix, mode);
+    }
+
+    static synchronized void disable(String packagePrefix) {
+        set(packagePrefix, null);
+    }
+
+    private static void set(String packagePrefix, Mode mode) {
+        SETTINGS.keySet().removeIf(p -> covers(packagePrefix, p)); // the new setting replaces those of packages under it
+        SETTINGS.put(packagePrefix, mode);
+        PACKAGES.forEach((name, state) -> {
+            if (covers(packagePrefix, name)) {
+                apply(name, state);
+            }
+        });
+    }
+
+    // Sets the package's state from the most specific setting covering it
+    private static void apply(String packageName, State state) {
+        Mode mode = null;
+        for (Map.Entry<String, Mode> setting : SETTINGS.entrySet()) { // sorted: a longer, more specific prefix comes later
+            if (covers(setting.getKey(), packageName)) {
+                mode = setting.getValue();
+            }
+        }
+        if (mode != null) {
+            state.mode = mode;
+        }
+        MethodHandle target = mode != null ? ON : OFF;
+        if (state.site.getTarget() != target) {
+            state.site.setTarget(target);
+            MutableCallSite.syncAll(new MutableCallSite[] {state.site});
+        }
+    }
+
+    private static boolean covers(String prefix, String packageName) {
+        return packageName.equals(prefix) || packageName.startsWith(prefix + ".");
+    }
+}
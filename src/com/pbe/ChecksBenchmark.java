@@ -0,0 +1,70 @@
+package com.pbe;
+
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+// Cost of a Checks check (the one in Main's getnum loop) when checks are off, on, and switched back off again
+// Each operation sums an array element, with or without the check 'value > 0' in front of it:
+// - no check: the plain loop
+// - checks off: the check is there, but the package's checks are off; should cost the same as no check
+// - checks on (count): the check is done on every element; every 1000th element violates it and is counted
+// - off again: after switching off while running; the code compiled with checks on is thrown away and recompiled,
+//   so this should be back to the cost of no check
+// Every variant runs in a JVM of its own (as JMH forks do): measured in one JVM, the variants would share Bench.run's call
+// to the operation, and only the first one measured would get it inlined.
+// 'checks compiled out' is the checks off variant in a JVM started with -Dcom.pbe.checks.compiled=false, where the checks
+// are removed at class loading already (no call site to depend on).
+public class ChecksBenchmark {
+
+    static final Checks CHECKS = Checks.of(ChecksBenchmark.class);
+    static final int OPS = 10_000_000;
+    static final int SIZE = 4096;
+    static final int[] VALUES = new int[SIZE];
+
+    public static void main(String[] args) {
+        if (args.length > 0) {
+            run(args[0]);
+            return;
+        }
+        for (String variant : new String[] {"no check", "checks off", "checks on (count)", "off again"}) {
+            Bench.fork(ChecksBenchmark.class, List.of(), variant);
+        }
+        Bench.fork(ChecksBenchmark.class, List.of("-Dcom.pbe.checks.compiled=false"), "checks compiled out");
+    }
+
+    static void run(String variant) {
+        for (int i = 0; i < SIZE; i++) {
+            VALUES[i] = i % 1000 == 999 ? 0 : i + 1;
+        }
+        switch (variant) {
+            case "no check":
+                Bench.run(variant, OPS, ChecksBenchmark::plain);
+                break;
+            case "checks on (count)":
+                Checks.enable("com.pbe", Checks.Mode.COUNT);
+                Bench.run(variant, OPS, ChecksBenchmark::checked);
+                System.out.println("violations counted: " + CHECKS.violations());
+                break;
+            case "off again":
+                IntUnaryOperator op = ChecksBenchmark::checked; // one lambda for both, so Bench's call to it stays monomorphic
+                Checks.enable("com.pbe", Checks.Mode.COUNT);
+                Bench.time(OPS, op); // compiled with checks on
+                Checks.disable("com.pbe");
+                Bench.run(variant, OPS, op);
+                break;
+            default:
+                Bench.run(variant, OPS, ChecksBenchmark::checked);
+        }
+    }
+
+    static int plain(int i) {
+        int value = VALUES[i & (SIZE - 1)];
+        return value;
+    }
+
+    static int checked(int i) {
+        int value = VALUES[i & (SIZE - 1)];
+        if (CHECKS.on() && value <= 0) CHECKS.violated("value > 0, but value is " + value);
+        return value;
+    }
+}
@@ -0,0 +1,67 @@
+package com.pbe;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Lock-free circuit breaker: stops calling something that keeps failing, and tries again after a while
+// - CLOSED: calls go through; after failureThreshold failures in a row it opens
+// - OPEN: calls are refused straight away, until openMillis have passed
+// - HALF_OPEN: a single trial call is let through; success closes the breaker, failure opens it again
+// All state changes are compare-and-set on atomics, so threads never block on the breaker.
+// Opening goes through a short OPENING state: only the thread that wins the change to it sets openedAt and then publishes
+// OPEN, so a late failure (or one while already open) can't push openedAt forward and make the breaker stay open longer.
+final class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private static final int OPENING = State.values().length; // internal, reported as OPEN
+
+    private final AtomicInteger state = new AtomicInteger(State.CLOSED.ordinal());
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAt;
+
+    CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openMillis * 1_000_000;
+    }
+
+    State state() {
+        int s = state.get();
+        return s == OPENING ? State.OPEN : State.values()[s];
+    }
+
+    // Whether a call may go ahead now; a true in OPEN state means this call is the half-open trial
+    boolean tryAcquire() {
+        int s = state.get();
+        if (s == State.CLOSED.ordinal()) {
+            return true;
+        }
+        if (s == State.OPEN.ordinal() && System.nanoTime() - openedAt >= openNanos) {
+            return state.compareAndSet(s, State.HALF_OPEN.ordinal()); // only one thread wins the trial
+        }
+        return false;
+    }
+
+    void onSuccess() {
+        consecutiveFailures.set(0);
+        state.compareAndSet(State.HALF_OPEN.ordinal(), State.CLOSED.ordinal());
+    }
+
+    void onFailure() {
+        if (state.get() == State.HALF_OPEN.ordinal()) {
+            open(State.HALF_OPEN);
+        } else if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            open(State.CLOSED);
+        }
+    }
+
+    private void open(State from) {
+        if (state.compareAndSet(from.ordinal(), OPENING)) {
+            openedAt = System.nanoTime(); // set before OPEN is published, so a thread seeing OPEN sees the new time
+            consecutiveFailures.set(0);
+            state.set(State.OPEN.ordinal());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.pbe;
+
+// Exception carrying just an error code from the ErrorCatalogue, plus an optional numeric payload (like MyException's num)
+// - no message string is stored: getMessage() formats it from the code's descriptor, only when someone asks for it
+// - no stack trace is filled in, and suppression is disabled
+// - without a payload, of(code) returns the code's one shared instance, so throwing it allocates nothing;
+//   with a payload it's a single small object
+// Like MyException.of()'s instances, a shared CodedException never changes; don't rely on its identity.
+public class CodedException extends Exception {
+
+    private final int code;
+    private final boolean hasPayload; // a flag, not a reserved payload value: every long is a valid payload
+    private final long payload;
+
+    // Without payload
+    CodedException(int code) {
+        this(code, false, 0, null);
+    }
+
+    CodedException(int code, long payload) {
+        this(code, true, payload, null);
+    }
+
+    CodedException(int code, boolean hasPayload, long payload, Throwable cause) {
+        super(null, cause, false, false);
+        this.code = code;
+        this.hasPayload = hasPayload;
+        this.payload = payload;
+    }
+
+    // The shared exception for the code
+    static CodedException of(int code) {
+        ErrorCatalogue.Descriptor descriptor = ErrorCatalogue.get(code);
+        return descriptor != null ? descriptor.shared : new CodedException(code);
+    }
+
+    static CodedException of(int code, long payload) {
+        return new CodedException(code, payload);
+    }
+
+    int getCode() {
+        return code;
+    }
+
+    boolean hasPayload() {
+        return hasPayload;
+    }
+
+    // The payload; 0 if there's none
+    long getPayload() {
+        return payload;
+    }
+
+    ErrorCatalogue.Descriptor descriptor() {
+        return ErrorCatalogue.get(code);
+    }
+
+    @Override
+    public String getMessage() {
+        ErrorCatalogue.Descriptor descriptor = descriptor();
+        if (descriptor != null) {
+            return hasPayload ? descriptor.format(payload) : descriptor.format();
+        }
+        return "unknown error code" + (hasPayload ? " (" + payload + ")" : "");
+    }
+
+    public String toString() {
+        return "CodedException[" + code + "]: " + getMessage();
+    }
+}
@@ -0,0 +1,148 @@
+package com.pbe;
+
+// Catalogue of error codes: per code one shared, immutable Descriptor with the message, severity and category
+// Exceptions then only need to carry the code and an optional numeric payload (see CodedException);
+// the message text is made from the descriptor's template when it's actually rendered, not when the exception is thrown.
+// The codes are kept in an open-addressing table (int keys, linear probing) instead of a HashMap<Integer, Descriptor>:
+// no Integer boxing on lookup, and no entry objects. Defining a code copies the table (codes are defined once, at start-up,
+// lookups happen all the time), so lookups need no lock.
+final class ErrorCatalogue {
+
+    enum Severity { INFO, WARNING, ERROR, FATAL }
+
+    enum Category { INPUT, ARITHMETIC, IO, INTERNAL }
+
+    // Codes used in the demos
+    static final int VALUE_TOO_LARGE = 1001;   // ErrorCatalogueBenchmark (ExceptionDemo.check's value > 10, as a code)
+    static final int DIVIDE_BY_ZERO = 1002;    // ExceptionPropagation.a(ErrorSlot), ErrorSlotBenchmark
+    static final int INPUT_MISMATCH = 1003;    // ErrorCatalogueBenchmark (what Main.getInt would throw)
+    static final int READ_FAILED = 1004;       // TestThrows.a(ErrorSlot)
+
+    // What a code means; the template may contain {} where the payload goes
+    static final class Descriptor {
+        final int code;
+        final Severity severity;
+        final Category category;
+        final String template;
+        final CodedException shared; // thrown for this code when there's no payload: no allocation at all
+        private final String withoutPayload; // the template with the {} and a space next to it taken out
+
+        private Descriptor(int code, Severity severity, Category category, String template) {
+            this.code = code;
+            this.severity = severity;
+            this.category = category;
+            this.template = template;
+            this.shared = new CodedException(code);
+            this.withoutPayload = stripPlaceholder(template);
+        }
+
+        // The message without a payload
+        String format() {
+            return withoutPayload;
+        }
+
+        String format(long payload) {
+            int at = template.indexOf("{}");
+            if (at < 0) {
+                return template;
+            }
+            return template.substring(0, at) + payload + template.substring(at + 2);
+        }
+
+        // "attempt to divide {} by zero" -> "attempt to divide by zero"
+        private static String stripPlaceholder(String template) {
+            int at = template.indexOf("{}");
+            if (at < 0) {
+                return template;
+            }
+            int end = at + 2;
+            if (end < template.length() && template.charAt(end) == ' ') {
+                end++;
+            } else if (at > 0 && template.charAt(at - 1) == ' ') {
+                at--;
+            }
+            return template.substring(0, at) + template.substring(end);
+        }
+
+        public String toString() {
+            return code + " " + severity + " " + category + ": " + template;
+        }
+    }
+
+    private static final class Table {
+        final int[] codes;
+        final Descriptor[] descriptors; // null marks a free slot
+        final int size;
+
+        Table(int capacity, int size) {
+            this.codes = new int[capacity];
+            this.descriptors = new Descriptor[capacity];
+            this.size = size;
+        }
+    }
+
+    private static volatile Table table = new Table(16, 0);
+
+    static {
+        define(VALUE_TOO_LARGE, Severity.ERROR, Category.INPUT, "value {} is greater than 10");
+        define(DIVIDE_BY_ZERO, Severity.ERROR, Category.ARITHMETIC, "attempt to divide {} by zero");
+        define(INPUT_MISMATCH, Severity.WARNING, Category.INPUT, "input is not an integer");
+        define(READ_FAILED, Severity.ERROR, Category.IO, "read failed");
+    }
+
+    private ErrorCatalogue() {
+    }
+
+    // Adds a code; defining the same code twice is an error
+    static synchronized Descriptor define(int code, Severity severity, Category category, String template) {
+        if (get(code) != null) {
+            throw new IllegalArgumentException("error code " + code + " is already defined: " + get(code));
+        }
+        Table old = table;
+        int capacity = old.codes.length;
+        while ((old.size + 1) * 2 > capacity) { // keep at most half full, so probe sequences stay short
+            capacity *= 2;
+        }
+        Table copy = new Table(capacity, old.size + 1);
+        for (Descriptor d : old.descriptors) {
+            if (d != null) {
+                insert(copy, d);
+            }
+        }
+        Descriptor descriptor = new Descriptor(code, severity, category, template);
+        insert(copy, descriptor);
+        table = copy;
+        return descriptor;
+    }
+
+    private static void insert(Table t, Descriptor d) {
+        int mask = t.codes.length - 1;
+        int i = slot(d.code) & mask;
+        while (t.descriptors[i] != null) {
+            i = (i + 1) & mask;
+        }
+        t.codes[i] = d.code;
+        t.descriptors[i] = d;
+    }
+
+    // The descriptor of the code, or null if it's not defined
+    static Descriptor get(int code) {
+        Table t = table;
+        int mask = t.codes.length - 1;
+        for (int i = slot(code) & mask; ; i = (i + 1) & mask) {
+            Descriptor d = t.descriptors[i];
+            if (d == null) {
+                return null;
+            }
+            if (t.codes[i] == code) {
+                return d;
+            }
+        }
+    }
+
+    // Spreads the bits of codes that are close together (1001, 1002, ...) over the table
+    private static int slot(int code) {
+        int h = code * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
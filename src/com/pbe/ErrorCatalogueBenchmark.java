@@ -0,0 +1,72 @@
+package com.pbe;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.function.IntUnaryOperator;
+
+// Heap use of throwing MyException compared to CodedException, in bytes allocated per throw and in garbage collections
+// - new MyException(a): as MyException was first written, with stack trace
+// - MyException.of(a), outside its cache: a new stackless MyException per throw
+// - MyException.of(a), inside its cache: reused per thread
+// - CodedException.of(code, payload): code plus payload, stackless, no message string
+// - CodedException.of(code): the code's shared instance
+// - getMessage() of a CodedException: what the lazily made message costs, paid only when it's rendered
+public class ErrorCatalogueBenchmark {
+
+    static final int OPS = 5_000_000;
+
+    public static void main(String[] args) {
+        run("new MyException (stack trace)", i -> {
+            try {
+                throw new MyException(11 + (i & 1023));
+            } catch (MyException e) {
+                return e.getNum();
+            }
+        });
+        run("MyException.of, not cached", i -> {
+            try {
+                throw MyException.of(10_000 + (i & 1023));
+            } catch (MyException e) {
+                return e.getNum();
+            }
+        });
+        run("MyException.of, cached", i -> {
+            try {
+                throw MyException.of(11 + (i & 1023));
+            } catch (MyException e) {
+                return e.getNum();
+            }
+        });
+        run("CodedException.of(code, payload)", i -> {
+            try {
+                throw CodedException.of(ErrorCatalogue.VALUE_TOO_LARGE, 11 + (i & 1023));
+            } catch (CodedException e) {
+                return (int) e.getPayload();
+            }
+        });
+        run("CodedException.of(code)", i -> {
+            try {
+                throw CodedException.of(ErrorCatalogue.INPUT_MISMATCH);
+            } catch (CodedException e) {
+                return e.getCode();
+            }
+        });
+        CodedException rendered = CodedException.of(ErrorCatalogue.VALUE_TOO_LARGE, 42);
+        run("CodedException.getMessage()", i -> rendered.getMessage().length());
+        System.out.println(rendered);
+    }
+
+    static void run(String label, IntUnaryOperator op) {
+        long collections = collections();
+        Bench.run(label, OPS, op);
+        System.out.printf("    %,d garbage collections%n", collections() - collections);
+    }
+
+    static long collections() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+}
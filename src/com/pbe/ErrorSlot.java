@@ -0,0 +1,149 @@
+package com.pbe;
+
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+
+// Error propagation without unwinding: the failing method stores its error in the thread's ErrorSlot and returns,
+// every frame in between checks the slot after a call and returns as well, and at the API boundary the error
+// is turned back into a real exception:
+//
+//   int a(ErrorSlot slot) {
+//       if (d == 0) return slot.fail(ErrorCatalogue.DIVIDE_BY_ZERO, n);   // instead of throwing
+//       ...
+//   int b(ErrorSlot slot) {
+//       int r = a(slot);
+//       if (slot.failed()) return 0;                                        // instead of letting it pass
+//       ...
+//   int c() throws CodedException {
+//       return ErrorSlot.call(slot -> b(slot));                             // the boundary: throws if the slot holds an error
+//
+// The error is an ErrorCatalogue code, an optional numeric payload and optionally the exception that caused it, in the slot's
+// fields: failing allocates nothing, there's no stack to walk and nothing to unwind, and a frame's check is a field read.
+// The price is that every frame has to check: a frame that forgets lets the call chain go on with a made-up return value.
+// The slot is passed down as an argument where possible; current() gets it from a ThreadLocal (one per thread, virtual
+// threads included: this is Java 17, so a ScopedValue isn't available), which costs a lookup per call.
+// call() always clears the slot on its way out, also when the body throws, so the next call on the thread starts clean.
+final class ErrorSlot {
+
+    private static final ThreadLocal<ErrorSlot> SLOT = ThreadLocal.withInitial(ErrorSlot::new);
+
+    private int code;          // 0: no error
+    private boolean hasPayload;
+    private long payload;
+    private Throwable cause;
+
+    // A method on the slot path, for call()
+    interface Body {
+        int run(ErrorSlot slot);
+    }
+
+    private ErrorSlot() {
+    }
+
+    // The slot of the current thread
+    static ErrorSlot current() {
+        return SLOT.get();
+    }
+
+    // Stores an error; returns 0, so a method can 'return slot.fail(...)'
+    int fail(int code, long payload) {
+        this.code = code;
+        this.hasPayload = true;
+        this.payload = payload;
+        this.cause = null;
+        return 0;
+    }
+
+    // Same, without payload
+    int fail(int code) {
+        this.code = code;
+        this.hasPayload = false;
+        this.payload = 0;
+        this.cause = null;
+        return 0;
+    }
+
+    // Stores an error caused by an exception, e.g. from a library call on the way down
+    int fail(int code, Throwable cause) {
+        this.code = code;
+        this.hasPayload = false;
+        this.payload = 0;
+        this.cause = cause;
+        return 0;
+    }
+
+    boolean failed() {
+        return code != 0;
+    }
+
+    int code() {
+        return code;
+    }
+
+    boolean hasPayload() {
+        return hasPayload;
+    }
+
+    long payload() {
+        return payload;
+    }
+
+    Throwable cause() {
+        return cause;
+    }
+
+    // The error's message, from its ErrorCatalogue descriptor
+    String message() {
+        ErrorCatalogue.Descriptor descriptor = ErrorCatalogue.get(code);
+        if (descriptor == null) {
+            return "unknown error code " + code;
+        }
+        return hasPayload ? descriptor.format(payload) : descriptor.format();
+    }
+
+    void clear() {
+        code = 0;
+        hasPayload = false;
+        payload = 0;
+        cause = null;
+    }
+
+    // The boundary: runs the body with the current thread's slot, and throws a CodedException if it ended with an error
+    static int call(Body body) throws CodedException {
+        return call(body, ErrorSlot::toCodedException);
+    }
+
+    // Same, throwing the exception the API has always thrown (e.g. TestThrows' IOException), made from the slot
+    static <X extends Exception> int call(Body body, Function<ErrorSlot, X> toException) throws X {
+        ErrorSlot slot = SLOT.get();
+        try {
+            int value = body.run(slot);
+            if (slot.code != 0) {
+                throw toException.apply(slot);
+            }
+            return value;
+        } finally {
+            slot.clear(); // whichever way the body ends, so an error can't stay behind for the thread's next call
+        }
+    }
+
+    // The other way round, for code on the slot path calling a method that throws
+    static int capture(ErrorSlot slot, int code, IntSupplier call) {
+        try {
+            return call.getAsInt();
+        } catch (RuntimeException e) {
+            return slot.fail(code, e);
+        }
+    }
+
+    private static CodedException toCodedException(ErrorSlot slot) {
+        if (slot.cause != null) {
+            return new CodedException(slot.code, slot.hasPayload, slot.payload, slot.cause);
+        }
+        return slot.hasPayload ? CodedException.of(slot.code, slot.payload) : CodedException.of(slot.code);
+    }
+
+    public String toString() {
+        return code == 0 ? "no error" : code + ": " + message() + (cause != null ? " (caused by " + cause + ")" : "");
+    }
+}
@@ -0,0 +1,124 @@
+package com.pbe;
+
+import java.util.List;
+
+// Propagating an error up a call chain by unwinding an exception vs through an ErrorSlot, at depths from 3 to 200 and
+// failure rates from 0 to 50%. The error starts at the bottom of the chain and is handled at the top, like
+// ExceptionPropagation's a() -> b() -> c(); every frame adds 1 to the result on the way up. Variants:
+// - exception: a new exception with stack trace (as a() throws), caught at the top
+// - stackless: a new exception without stack trace, caught at the top
+// - slot: the slot passed down as an argument; every frame checks it; ErrorSlot.call() at the top throws a CodedException
+//   (with a payload, so one small object) when it holds an error, which is caught there
+// - slot (ThreadLocal): the same, but every frame gets the slot with ErrorSlot.current() instead of as an argument
+// Reported: ns per call of the whole chain. Every variant runs in a JVM of its own, see ChecksBenchmark.
+public class ErrorSlotBenchmark {
+
+    static final int[] DEPTHS = {3, 10, 50, 100, 200};
+    static final double[] RATES = {0, 0.01, 0.1, 0.5};
+    static final String[] VARIANTS = {"exception", "stackless", "slot", "slot (ThreadLocal)"};
+
+    public static void main(String[] args) {
+        if (args.length > 0) {
+            run(args[0]);
+            return;
+        }
+        for (String variant : VARIANTS) {
+            Bench.fork(ErrorSlotBenchmark.class, List.of(), variant);
+        }
+    }
+
+    static void run(String variant) {
+        System.out.println(variant + ", ns/call");
+        System.out.printf("%8s", "depth");
+        for (double rate : RATES) {
+            System.out.printf("%12s", rate * 100 + "%");
+        }
+        System.out.println();
+        for (int depth : DEPTHS) {
+            System.out.printf("%8d", depth);
+            int ops = Math.max(5_000, 1_000_000 / depth);
+            for (double rate : RATES) {
+                boolean[] fail = Bench.failures(1024, rate);
+                double ns;
+                switch (variant) {
+                    case "exception":
+                        ns = Bench.time(ops, i -> top(depth, fail[i & 1023], true));
+                        break;
+                    case "stackless":
+                        ns = Bench.time(ops, i -> top(depth, fail[i & 1023], false));
+                        break;
+                    case "slot":
+                        ns = Bench.time(ops, i -> topSlot(depth, fail[i & 1023]));
+                        break;
+                    default:
+                        ns = Bench.time(ops, i -> topThreadLocal(depth, fail[i & 1023]));
+                }
+                System.out.printf("%12.1f", ns);
+            }
+            System.out.println();
+        }
+        System.out.println();
+    }
+
+    static int top(int depth, boolean fail, boolean stackTrace) {
+        try {
+            return recurse(depth, fail, stackTrace);
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    static int recurse(int depth, boolean fail, boolean stackTrace) {
+        if (depth > 1) {
+            return recurse(depth - 1, fail, stackTrace) + 1;
+        }
+        if (fail) {
+            throw new RuntimeException("failed", null, false, stackTrace) { };
+        }
+        return 1;
+    }
+
+    static int topSlot(int depth, boolean fail) {
+        try {
+            return ErrorSlot.call(slot -> recurseSlot(slot, depth, fail));
+        } catch (CodedException e) {
+            return -1;
+        }
+    }
+
+    static int recurseSlot(ErrorSlot slot, int depth, boolean fail) {
+        if (depth > 1) {
+            int result = recurseSlot(slot, depth - 1, fail);
+            if (slot.failed()) {
+                return 0;
+            }
+            return result + 1;
+        }
+        if (fail) {
+            return slot.fail(ErrorCatalogue.DIVIDE_BY_ZERO, depth);
+        }
+        return 1;
+    }
+
+    static int topThreadLocal(int depth, boolean fail) {
+        try {
+            return ErrorSlot.call(slot -> recurseThreadLocal(depth, fail));
+        } catch (CodedException e) {
+            return -1;
+        }
+    }
+
+    static int recurseThreadLocal(int depth, boolean fail) {
+        if (depth > 1) {
+            int result = recurseThreadLocal(depth - 1, fail);
+            if (ErrorSlot.current().failed()) {
+                return 0;
+            }
+            return result + 1;
+        }
+        if (fail) {
+            return ErrorSlot.current().fail(ErrorCatalogue.DIVIDE_BY_ZERO, depth);
+        }
+        return 1;
+    }
+}
@@ -3,16 +3,45 @@ package com.pbe;
 // Class used in example to demonstrate declaring a new subclass of Exception
 public class ExceptionDemo {
 
+    // Sampling for checkSampled(): full detail for the first 10 per second, at most 1000 per second
+    static final ExceptionSampler SAMPLER = new ExceptionSampler(10, 1000, 1000);
+    static final ExceptionSampler.Site CHECK_SAMPLES = SAMPLER.site("ExceptionDemo.check");
+
     // This method throws a (own made) MyException object, when compute()'s integer parameter is >10
     static void compute(int a) throws MyException {
         System.out.println("Called compute with a value of: " + a );
+        try {
+            check(a);
+        } catch (MyException e) {
+            throw ExceptionEvent.emit(ExceptionEvent.COMPUTE, e, e.getNum()); // JFR event, when recording
+        }
+        System.out.println("Normal exit");
+    }
+
+    // The check done by compute(), without console output (used by the benchmarks)
+    // The thrown exception comes from MyException.of(), so it has no stack trace unless MyException.stackTraces is switched on
+    @HotPath
+    static void check(int a) throws MyException {
         if(a > 10) { // throw an exception
-            throw new MyException(a);
-        } else { // no exception
-            System.out.println("Normal exit");
+            throw MyException.of(a);
         }
     }
 
+    // Same check for when it may fail at a high rate: only the exceptions picked by the sampler get a stack trace
+    // (all of them are still counted by CHECK_SAMPLES)
+    static void checkSampled(int a) throws MyException {
+        if(a > 10) {
+            throw CHECK_SAMPLES.sample() ? new MyException(a, true) : MyException.of(a);
+        }
+    }
+
+    // Same check, but returning the outcome as an IntResult instead of throwing: ok(a), or error(a) when a > 10
+    // Callers still wanting the exception can use IntResult.orElseThrow(checkResult(a), MyException::of)
+    @HotPath
+    static long checkResult(int a) {
+        return a > 10 ? IntResult.error(a) : IntResult.ok(a);
+    }
+
     // The main method sets up an exception handler for MyException
     // Then calls computer() with a legal (<10) and illegal (>10) value
     public static void main(String[] args) {
@@ -20,7 +49,7 @@ public class ExceptionDemo {
             compute(1);
             compute(20);
         } catch (MyException e){
-            System.out.println("Caught: " + e);
+            AsyncLogger.log("Caught: ", e);
         }
     }
 }
@@ -0,0 +1,57 @@
+package com.pbe;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JDK Flight Recorder event for an exception thrown at one of the demo's throw sites
+// Emitted with emit(), which returns the exception, so a throw site only changes from 'throw e' to
+//   throw ExceptionEvent.emit(ExceptionEvent.TESTTHROWS_A, e, 0);
+// While no recording has the event enabled, emit() is an isEnabled() check on an event object that the JIT doesn't
+// even allocate (escape analysis): close to nothing. Record it with e.g.
+//   java -XX:StartFlightRecording:filename=demo.jfr ...   (then: jfr print --events com.pbe.Exception demo.jfr)
+// or in-process with ExceptionEventMonitor.
+@Name(ExceptionEvent.NAME)
+@Label("Exception Thrown")
+@Category({"com.pbe", "Exceptions"})
+@Description("An exception thrown at one of the demo's throw sites")
+@StackTrace(false) // the site says where; a stack trace per event would cost more than the exception itself
+final class ExceptionEvent extends jdk.jfr.Event {
+
+    static final String NAME = "com.pbe.Exception";
+
+    // Throw sites, by id; SITES[id] is the name
+    static final int COMPUTE = 1;
+    static final int THROWS_EXCEPTION = 2;
+    static final int THROWTEST = 3;
+    static final int TESTTHROWS_A = 4;
+    static final String[] SITES = {null, "ExceptionDemo.compute", "Main.throwsException", "Main.throwtest", "TestThrows.a"};
+
+    @Label("Site Id")
+    int siteId;
+
+    @Label("Site")
+    String site;
+
+    @Label("Exception Type")
+    Class<?> exceptionType;
+
+    @Label("Payload")
+    @Description("Numeric detail of the exception, like MyException's num; 0 if none")
+    long payload;
+
+    // Commits an event for t at the site, if the event is enabled; returns t, for throwing
+    static <T extends Throwable> T emit(int siteId, T t, long payload) {
+        ExceptionEvent event = new ExceptionEvent();
+        if (event.isEnabled()) {
+            event.siteId = siteId;
+            event.site = SITES[siteId];
+            event.exceptionType = t.getClass();
+            event.payload = payload;
+            event.commit();
+        }
+        return t;
+    }
+}
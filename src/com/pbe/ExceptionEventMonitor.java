@@ -0,0 +1,171 @@
+package com.pbe;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+
+// In-process consumer of ExceptionEvents: enables the event in a RecordingStream and aggregates what comes in
+// - per site and exception type: the total count and the count per second over the last WINDOW_SECONDS seconds,
+//   from which rate() gives a rolling rate
+// - topOffenders(): the site/type combinations with the most exceptions
+// JFR hands the events over in batches, about once a second, so the numbers run up to a second or so behind.
+// While the monitor is closed (and nothing else records the event), the throw sites pay next to nothing; see ExceptionEvent.
+final class ExceptionEventMonitor implements AutoCloseable {
+
+    static final int WINDOW_SECONDS = 60;
+
+    // Counts for one site and exception type
+    static final class Offender {
+        final String site;
+        final String type;
+        long total;
+        long lastPayload;
+        private final long[] perSecond = new long[WINDOW_SECONDS]; // ring buffer, indexed by epoch second
+        private final long[] second = new long[WINDOW_SECONDS];    // the epoch second each slot holds
+
+        Offender(String site, String type) {
+            this.site = site;
+            this.type = type;
+        }
+
+        void add(long epochSecond, long payload) {
+            int slot = (int) (epochSecond % WINDOW_SECONDS);
+            if (second[slot] != epochSecond) {
+                second[slot] = epochSecond;
+                perSecond[slot] = 0;
+            }
+            perSecond[slot]++;
+            total++;
+            lastPayload = payload;
+        }
+
+        // Count in the 'seconds' seconds up to and including nowSecond
+        long count(long nowSecond, int seconds) {
+            long count = 0;
+            for (int i = 0; i < WINDOW_SECONDS; i++) {
+                if (second[i] > nowSecond - seconds && second[i] <= nowSecond) {
+                    count += perSecond[i];
+                }
+            }
+            return count;
+        }
+
+        public String toString() {
+            return site + " " + type + ": " + total + " (last payload " + lastPayload + ")";
+        }
+    }
+
+    private final RecordingStream stream = new RecordingStream();
+    private final Map<String, Offender> offenders = new HashMap<>(); // by site + type; guarded by this
+
+    // Starts recording and aggregating ExceptionEvents
+    ExceptionEventMonitor() {
+        stream.enable(ExceptionEvent.NAME);
+        stream.onEvent(ExceptionEvent.NAME, this::onEvent);
+        stream.startAsync();
+    }
+
+    private synchronized void onEvent(RecordedEvent event) {
+        String site = event.getString("site");
+        String type = event.getClass("exceptionType").getName();
+        offenders.computeIfAbsent(site + ' ' + type, k -> new Offender(site, type))
+                .add(event.getStartTime().getEpochSecond(), event.getLong("payload"));
+    }
+
+    // Exceptions counted at the site, of all types
+    synchronized long count(String site) {
+        long count = 0;
+        for (Offender o : offenders.values()) {
+            if (o.site.equals(site)) {
+                count += o.total;
+            }
+        }
+        return count;
+    }
+
+    // Exceptions per second at the site over the last 'seconds' seconds (at most WINDOW_SECONDS)
+    synchronized double rate(String site, int seconds) {
+        long now = System.currentTimeMillis() / 1000;
+        long count = 0;
+        for (Offender o : offenders.values()) {
+            if (o.site.equals(site)) {
+                count += o.count(now, seconds);
+            }
+        }
+        return (double) count / seconds;
+    }
+
+    // The n site/type combinations with the most exceptions, most first
+    synchronized List<Offender> topOffenders(int n) {
+        List<Offender> top = new ArrayList<>(offenders.values());
+        top.sort(Comparator.comparingLong((Offender o) -> o.total).reversed());
+        return top.subList(0, Math.min(n, top.size()));
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+    }
+
+    // Runs the demos under the monitor and checks the counts it aggregated against the number of exceptions thrown
+    // (exit code 1 if they don't match), then measures the cost of an emit() while the event is disabled
+    public static void main(String[] args) throws InterruptedException {
+        long[] expected = new long[ExceptionEvent.SITES.length];
+        try (ExceptionEventMonitor monitor = new ExceptionEventMonitor()) {
+            for (int i = 0; i < 3; i++) {
+                ExceptionDemo.main(args); // compute(20) throws
+                expected[ExceptionEvent.COMPUTE]++;
+            }
+            for (int i = 0; i < 2; i++) {
+                try {
+                    Main.throwsException();
+                } catch (IllegalAccessException e) {
+                    expected[ExceptionEvent.THROWS_EXCEPTION]++;
+                }
+            }
+            for (int i = 0; i < 1000; i++) {
+                try {
+                    Main.throwtest();
+                } catch (NullPointerException e) {
+                    expected[ExceptionEvent.THROWTEST]++;
+                }
+            }
+            for (int i = 0; i < 5; i++) {
+                new TestThrows().c();
+                expected[ExceptionEvent.TESTTHROWS_A]++;
+            }
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (System.nanoTime() < deadline && monitor.count(ExceptionEvent.SITES[ExceptionEvent.TESTTHROWS_A]) < expected[ExceptionEvent.TESTTHROWS_A]) {
+                Thread.sleep(100); // wait for JFR to hand over the events
+            }
+            Thread.sleep(200);
+
+            System.out.println();
+            boolean ok = true;
+            for (int site = 1; site < ExceptionEvent.SITES.length; site++) {
+                String name = ExceptionEvent.SITES[site];
+                long counted = monitor.count(name);
+                System.out.printf("%-24s expected %5d, counted %5d, %8.1f/s over the last 5 s%n", name, expected[site], counted, monitor.rate(name, 5));
+                ok &= counted == expected[site];
+            }
+            System.out.println("Top offenders:");
+            monitor.topOffenders(3).forEach(o -> System.out.println("    " + o));
+            if (!ok) {
+                System.out.println("FAILED: counts don't match");
+                System.exit(1);
+            }
+            System.out.println("OK");
+        }
+
+        // No recording any more: what an emit() costs the throw site
+        MyException e = MyException.of(20);
+        Bench.run("emit() while disabled", 10_000_000, i -> ExceptionEvent.emit(ExceptionEvent.COMPUTE, e, i).getNum());
+        Bench.run("without emit()", 10_000_000, i -> e.getNum() + i);
+    }
+}
@@ -0,0 +1,608 @@
+package com.pbe;
+
+import com.sun.source.tree.BlockTree;
+import com.sun.source.tree.CatchTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.DoWhileLoopTree;
+import com.sun.source.tree.EnhancedForLoopTree;
+import com.sun.source.tree.ExpressionStatementTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.ForLoopTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.LiteralTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.ReturnTree;
+import com.sun.source.tree.StatementTree;
+import com.sun.source.tree.ThrowTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.TryTree;
+import com.sun.source.tree.UnaryTree;
+import com.sun.source.tree.WhileLoopTree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+import com.sun.source.util.TreeScanner;
+import com.sun.source.util.Trees;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.UnionType;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+// Annotation processor that runs along with javac and reports exceptions used as control flow:
+// - try/catch inside a loop, worst when the catch lets the loop go round again (a retry loop like getInt's used to be):
+//   every failing iteration then creates an exception, with a stack trace unless it is created stackless
+// - catch blocks returning a default value (like divideEAFP's 'return 0'): the caller can't tell the failure from a result
+// - catch blocks swallowing the exception: it's neither used nor rethrown
+// Each finding comes with an estimated cost class (see Cost) and, for the common JDK exceptions, the LBYL check that avoids it.
+// The cost says whether the exception has a stack trace (see Trace): that follows the writableStackTrace argument the
+// constructors pass to Throwable(message, cause, enableSuppression, writableStackTrace), or an override of fillInStackTrace().
+// For a catch it's what the caught class's constructors do, for a 'new' what that constructor call does.
+// catch (InterruptedException e) { Thread.currentThread().interrupt(); } is the correct way to stop waiting, and not reported
+// (unless a loop then goes round to wait again, which throws straight away: a busy loop).
+// In code marked @HotPath the rules are stricter (any catch of an exception an up-front check could avoid, and any exception
+// created inside a loop, is reported) and findings are errors instead of warnings.
+//
+// Usage (the checker is compiled first, then put on the processor path):
+//   javac -d checker src/com/pbe/ExceptionFlowChecker.java src/com/pbe/HotPath.java
+//   javac -processorpath checker -processor com.pbe.ExceptionFlowChecker -d out src/com/pbe/*.java
+@SupportedAnnotationTypes("*")
+public class ExceptionFlowChecker extends AbstractProcessor {
+
+    // Estimated cost of the exception handling on the failure path
+    enum Cost {
+        MODERATE("on failure only: %s per failing call, %s"),
+        EXPENSIVE("%s per failed iteration, or I/O in the catch: %s per failure, plus the I/O");
+
+        final String description;
+
+        Cost(String description) {
+            this.description = description;
+        }
+
+        String describe(Trace trace) {
+            return String.format(description, trace.exception, trace.time);
+        }
+    }
+
+    // Whether the exception has a stack trace, which is most of what creating one costs
+    enum Trace {
+        WITH("an exception with stack trace", "~1-10 us"),
+        WITHOUT("a stackless exception", "~0.1-1 us"),
+        EITHER("an exception with or without stack trace", "~0.1-10 us");
+
+        final String exception;
+        final String time;
+
+        Trace(String exception, String time) {
+            this.exception = exception;
+            this.time = time;
+        }
+
+        Trace and(Trace other) {
+            return this == other ? this : EITHER;
+        }
+    }
+
+    private static final String HOT_PATH = HotPath.class.getName();
+
+    // Up-front checks that make the exception unnecessary, by simple name of the caught exception
+    private static final Map<String, String> LBYL = Map.ofEntries(
+            Map.entry("ArithmeticException", "check the divisor != 0 before dividing (see Main.divideLBYL, or Main.divideResult)"),
+            Map.entry("InputMismatchException", "check Scanner.hasNextInt() before nextInt(), or validate the token (see Main.getIntLBYL, IntParser)"),
+            Map.entry("NumberFormatException", "validate the digits before parsing, or parse with IntParser's status codes"),
+            Map.entry("NoSuchElementException", "check hasNext() before next()"),
+            Map.entry("ArrayIndexOutOfBoundsException", "check 0 <= index < length before indexing"),
+            Map.entry("IndexOutOfBoundsException", "check 0 <= index < size() before indexing"),
+            Map.entry("StringIndexOutOfBoundsException", "check 0 <= index < length() before indexing"),
+            Map.entry("NullPointerException", "check for null before dereferencing"),
+            Map.entry("ClassCastException", "check with instanceof before casting"));
+
+    private static final Set<String> REPORTING_METHODS = Set.of("println", "print", "printf", "printStackTrace", "log");
+
+    private Trees trees;
+    private final Set<CompilationUnitTree> checked = new HashSet<>();
+    private final Map<Cost, Integer> findings = new EnumMap<>(Cost.class);
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        trees = Trees.instance(processingEnv);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        for (Element element : round.getRootElements()) {
+            TreePath path = trees.getPath(element);
+            if (path != null && checked.add(path.getCompilationUnit())) {
+                new Scanner(path.getCompilationUnit()).scan(path.getCompilationUnit(), null);
+            }
+        }
+        if (round.processingOver() && !findings.isEmpty()) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "ExceptionFlowChecker: " + findings + " findings");
+        }
+        return false;
+    }
+
+    private final class Scanner extends TreePathScanner<Void, Void> {
+        private final CompilationUnitTree unit;
+        private int loopDepth;
+        private boolean hotPath;
+
+        Scanner(CompilationUnitTree unit) {
+            this.unit = unit;
+        }
+
+        @Override
+        public Void visitClass(ClassTree tree, Void v) {
+            int outerLoopDepth = loopDepth;
+            boolean outerHotPath = hotPath;
+            loopDepth = 0; // the body of a nested or anonymous class doesn't run in the loop around it
+            hotPath = hotPath || isHotPath();
+            try {
+                return super.visitClass(tree, v);
+            } finally {
+                loopDepth = outerLoopDepth;
+                hotPath = outerHotPath;
+            }
+        }
+
+        @Override
+        public Void visitMethod(MethodTree tree, Void v) {
+            boolean outerHotPath = hotPath;
+            hotPath = hotPath || isHotPath();
+            try {
+                return super.visitMethod(tree, v);
+            } finally {
+                hotPath = outerHotPath;
+            }
+        }
+
+        @Override
+        public Void visitLambdaExpression(LambdaExpressionTree tree, Void v) {
+            int outerLoopDepth = loopDepth;
+            loopDepth = 0;
+            try {
+                return super.visitLambdaExpression(tree, v);
+            } finally {
+                loopDepth = outerLoopDepth;
+            }
+        }
+
+        @Override
+        public Void visitForLoop(ForLoopTree tree, Void v) {
+            return inLoop(() -> super.visitForLoop(tree, v));
+        }
+
+        @Override
+        public Void visitEnhancedForLoop(EnhancedForLoopTree tree, Void v) {
+            return inLoop(() -> super.visitEnhancedForLoop(tree, v));
+        }
+
+        @Override
+        public Void visitWhileLoop(WhileLoopTree tree, Void v) {
+            return inLoop(() -> super.visitWhileLoop(tree, v));
+        }
+
+        @Override
+        public Void visitDoWhileLoop(DoWhileLoopTree tree, Void v) {
+            return inLoop(() -> super.visitDoWhileLoop(tree, v));
+        }
+
+        private Void inLoop(Supplier<Void> scanLoop) {
+            loopDepth++;
+            try {
+                return scanLoop.get();
+            } finally {
+                loopDepth--;
+            }
+        }
+
+        @Override
+        public Void visitNewClass(NewClassTree tree, Void v) {
+            String type = tree.getIdentifier().toString();
+            if (hotPath && loopDepth > 0 && (type.endsWith("Exception") || type.endsWith("Error"))) {
+                Trace trace = creationTrace(tree);
+                report(tree, Cost.EXPENSIVE, trace, "new " + type + (trace == Trace.WITHOUT ? " (stackless)" : "") + " inside a loop on a hot path",
+                        trace == Trace.WITHOUT ? "signal the failure with a status or result value (see IntResult), or preallocate the exception"
+                                : "signal the failure with a status or result value (see IntResult), or throw a preallocated stackless exception");
+            }
+            return super.visitNewClass(tree, v);
+        }
+
+        // Whether the exception created here gets a stack trace
+        private Trace creationTrace(NewClassTree tree) {
+            Element element = trees.getElement(getCurrentPath());
+            if (!(element instanceof ExecutableElement)) {
+                return Trace.WITH;
+            }
+            ExecutableElement constructor = (ExecutableElement) element;
+            if (tree.getClassBody() != null) { // an anonymous subclass: its constructor passes the arguments on to the superclass's
+                constructor = superConstructor(constructor);
+                if (constructor == null) {
+                    return Trace.WITH;
+                }
+            }
+            if (overridesFillInStackTrace(constructor.getEnclosingElement())) {
+                return Trace.WITHOUT;
+            }
+            Boolean[] values = new Boolean[tree.getArguments().size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = booleanValue(tree.getArguments().get(i), null, null);
+            }
+            return trace(constructor, values);
+        }
+
+        @Override
+        public Void visitTry(TryTree tree, Void v) {
+            for (CatchTree c : tree.getCatches()) {
+                check(c);
+            }
+            return super.visitTry(tree, v);
+        }
+
+        private void check(CatchTree c) {
+            String caught = c.getParameter().getType().toString();
+            BlockTree block = c.getBlock();
+            boolean reports = calls(block, REPORTING_METHODS);
+            boolean retries = loopDepth > 0 && completesNormally(block);
+            if (simpleName(caught).equals("InterruptedException") && restoresInterrupt(block)) {
+                if (retries) {
+                    report(c, Cost.EXPENSIVE, Trace.WITH, "catch of InterruptedException inside a loop, restoring the interrupt and going round again",
+                            "leave the loop (return, break or throw) after restoring the interrupt: waiting again throws straight away");
+                }
+                return;
+            }
+            ReturnTree defaultReturn = defaultReturn(block);
+            String lbyl = lbyl(caught);
+
+            StringBuilder finding = new StringBuilder("catch of " + caught);
+            boolean found = false;
+            if (loopDepth > 0) {
+                finding.append(retries ? " inside a loop, going round again after a failure" : " inside a loop");
+                found = true;
+            }
+            if (!reports && !uses(block, c.getParameter().getName().toString()) && !throwsIn(block)) {
+                finding.append(", swallowing the exception");
+                found = true;
+            }
+            if (defaultReturn != null) {
+                finding.append(", returning a default value (").append(defaultReturn.getExpression()).append(")");
+                lbyl += "; or return an IntResult/Result, so the caller can tell a failure from a value";
+                found = true;
+            }
+            if (reports) {
+                finding.append(", reporting it"); // not a finding by itself: only makes the others more costly
+            }
+            if (found || hotPath && LBYL.containsKey(simpleName(caught))) {
+                report(c, retries || reports ? Cost.EXPENSIVE : Cost.MODERATE, caughtTrace(c), finding + (found ? "" : " on a hot path"), lbyl);
+            }
+        }
+
+        // Whether the caught class's instances get a stack trace, by the class's constructors (for a multi-catch: all classes')
+        private Trace caughtTrace(CatchTree c) {
+            // through the parameter's element: unlike getTypeMirror(), getElement() attributes the method if javac hasn't yet
+            Element parameter = trees.getElement(new TreePath(new TreePath(getCurrentPath(), c), c.getParameter()));
+            if (parameter == null) {
+                return Trace.WITH;
+            }
+            TypeMirror type = parameter.asType();
+            if (type.getKind() == TypeKind.UNION) {
+                Trace trace = null;
+                for (TypeMirror alternative : ((UnionType) type).getAlternatives()) {
+                    Trace t = classTrace(alternative);
+                    trace = trace == null ? t : trace.and(t);
+                }
+                return trace != null ? trace : Trace.WITH;
+            }
+            return classTrace(type);
+        }
+
+        private Trace classTrace(TypeMirror type) {
+            if (!(type instanceof DeclaredType)) {
+                return Trace.WITH;
+            }
+            Element element = ((DeclaredType) type).asElement();
+            if (overridesFillInStackTrace(element)) {
+                return Trace.WITHOUT;
+            }
+            if (trees.getTree(element) == null) {
+                return Trace.WITH; // a library class, e.g. the JDK's: its protected stackless constructor is for subclasses
+            }
+            Trace trace = null;
+            for (ExecutableElement constructor : ElementFilter.constructorsIn(element.getEnclosedElements())) {
+                Trace t = trace(constructor, new Boolean[constructor.getParameters().size()]);
+                trace = trace == null ? t : trace.and(t);
+            }
+            return trace != null ? trace : Trace.WITH;
+        }
+
+        // What a constructor call does with the stack trace, given the boolean values known of its arguments (null: unknown):
+        // follows the this(...)/super(...) calls up to Throwable's (message, cause, enableSuppression, writableStackTrace)
+        private Trace trace(ExecutableElement constructor, Boolean[] values) {
+            Element owner = constructor.getEnclosingElement();
+            if (isThrowableConstructor(constructor)) {
+                Boolean writable = values.length == 4 ? values[3] : null;
+                return writable == null ? Trace.EITHER : writable ? Trace.WITH : Trace.WITHOUT;
+            }
+            TreePath path = trees.getPath(constructor);
+            if (path == null || !(path.getLeaf() instanceof MethodTree) || ((MethodTree) path.getLeaf()).getBody() == null) {
+                return Trace.WITH; // a library constructor, or one javac generated
+            }
+            MethodTree method = (MethodTree) path.getLeaf();
+            List<? extends StatementTree> statements = method.getBody().getStatements();
+            if (!statements.isEmpty() && statements.get(0) instanceof ExpressionStatementTree
+                    && ((ExpressionStatementTree) statements.get(0)).getExpression() instanceof MethodInvocationTree) {
+                MethodInvocationTree call = (MethodInvocationTree) ((ExpressionStatementTree) statements.get(0)).getExpression();
+                String name = call.getMethodSelect().toString();
+                if (name.equals("super") || name.equals("this")) {
+                    Element invoked = trees.getElement(TreePath.getPath(path.getCompilationUnit(), call));
+                    if (!(invoked instanceof ExecutableElement)) {
+                        return Trace.WITH;
+                    }
+                    Boolean[] passed = new Boolean[call.getArguments().size()];
+                    for (int i = 0; i < passed.length; i++) {
+                        passed[i] = booleanValue(call.getArguments().get(i), method, values);
+                    }
+                    return trace((ExecutableElement) invoked, passed);
+                }
+            }
+            // the implicit super(): the superclass's no-arg constructor
+            ExecutableElement noArg = superConstructor(owner, 0);
+            return noArg != null ? trace(noArg, new Boolean[0]) : Trace.WITH;
+        }
+
+        private boolean isHotPath() {
+            Element element = trees.getElement(getCurrentPath());
+            if (element == null) {
+                return false;
+            }
+            for (AnnotationMirror a : element.getAnnotationMirrors()) {
+                if (a.getAnnotationType().toString().equals(HOT_PATH)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void report(Tree tree, Cost cost, Trace trace, String finding, String suggestion) {
+            findings.merge(cost, 1, Integer::sum);
+            trees.printMessage(hotPath ? Diagnostic.Kind.ERROR : Diagnostic.Kind.WARNING,
+                    "[" + cost + "] " + finding + ": " + cost.describe(trace) + "\n  LBYL: " + suggestion, tree, unit);
+        }
+    }
+
+    // Throwable(message, cause, enableSuppression, writableStackTrace), or its copy in one of the JDK's exception classes
+    private static boolean isThrowableConstructor(ExecutableElement constructor) {
+        String owner = ((TypeElement) constructor.getEnclosingElement()).getQualifiedName().toString();
+        return owner.startsWith("java.") && constructor.getParameters().size() == 4
+                && constructor.getParameters().get(3).asType().getKind() == TypeKind.BOOLEAN;
+    }
+
+    // The superclass constructor an anonymous class's constructor passes its arguments to
+    private static ExecutableElement superConstructor(ExecutableElement anonymous) {
+        return superConstructor(anonymous.getEnclosingElement(), anonymous.getParameters().size());
+    }
+
+    // The superclass's constructor with the given number of parameters, if there's just one
+    private static ExecutableElement superConstructor(Element type, int parameters) {
+        TypeMirror superclass = ((TypeElement) type).getSuperclass();
+        if (!(superclass instanceof DeclaredType)) {
+            return null;
+        }
+        ExecutableElement found = null;
+        for (ExecutableElement c : ElementFilter.constructorsIn(((DeclaredType) superclass).asElement().getEnclosedElements())) {
+            if (c.getParameters().size() == parameters) {
+                if (found != null) {
+                    return null;
+                }
+                found = c;
+            }
+        }
+        return found;
+    }
+
+    // Whether the class, or a superclass, overrides fillInStackTrace() (to do nothing, as it's done for stackless exceptions)
+    // The JDK's own overrides don't count: NullPointerException's, for one, still fills in the stack trace
+    private static boolean overridesFillInStackTrace(Element type) {
+        for (Element t = type; t instanceof TypeElement; ) {
+            TypeElement typeElement = (TypeElement) t;
+            if (typeElement.getQualifiedName().toString().startsWith("java.")) {
+                return false;
+            }
+            for (ExecutableElement m : ElementFilter.methodsIn(typeElement.getEnclosedElements())) {
+                if (m.getSimpleName().contentEquals("fillInStackTrace") && m.getParameters().isEmpty()) {
+                    return true;
+                }
+            }
+            TypeMirror superclass = typeElement.getSuperclass();
+            t = superclass instanceof DeclaredType ? ((DeclaredType) superclass).asElement() : null;
+        }
+        return false;
+    }
+
+    // The value of a boolean argument: a literal, or a parameter of the calling constructor whose value is known; else null
+    private static Boolean booleanValue(ExpressionTree argument, MethodTree caller, Boolean[] callerValues) {
+        if (argument instanceof LiteralTree && ((LiteralTree) argument).getValue() instanceof Boolean) {
+            return (Boolean) ((LiteralTree) argument).getValue();
+        }
+        if (argument instanceof IdentifierTree && caller != null) {
+            for (int i = 0; i < caller.getParameters().size() && i < callerValues.length; i++) {
+                if (caller.getParameters().get(i).getName().contentEquals(((IdentifierTree) argument).getName())) {
+                    return callerValues[i];
+                }
+            }
+        }
+        return null;
+    }
+
+    // Whether the block calls Thread.currentThread().interrupt(), setting the interrupt flag again
+    private static boolean restoresInterrupt(BlockTree block) {
+        Boolean found = block.accept(new TreeScanner<Boolean, Void>() {
+            @Override
+            public Boolean visitMethodInvocation(MethodInvocationTree tree, Void v) {
+                Tree select = tree.getMethodSelect();
+                if (select instanceof MemberSelectTree && ((MemberSelectTree) select).getIdentifier().contentEquals("interrupt")
+                        && tree.getArguments().isEmpty()) {
+                    ExpressionTree target = ((MemberSelectTree) select).getExpression();
+                    if (target instanceof MethodInvocationTree
+                            && ((MethodInvocationTree) target).getMethodSelect().toString().endsWith("currentThread")) {
+                        return true;
+                    }
+                }
+                return super.visitMethodInvocation(tree, v);
+            }
+
+            @Override
+            public Boolean reduce(Boolean a, Boolean b) {
+                return Boolean.TRUE.equals(a) || Boolean.TRUE.equals(b);
+            }
+        }, null);
+        return Boolean.TRUE.equals(found);
+    }
+
+    // The LBYL suggestion for a caught type, or for each type of a multi-catch
+    private static String lbyl(String caught) {
+        StringBuilder sb = new StringBuilder();
+        for (String type : caught.split("\\|")) {
+            String check = LBYL.get(simpleName(type));
+            if (check != null) {
+                sb.append(sb.length() == 0 ? "" : "; ").append(check);
+            }
+        }
+        return sb.length() > 0 ? sb.toString() : "check the failing condition up front, or return an IntResult/Result instead of throwing";
+    }
+
+    private static String simpleName(String type) {
+        String name = type.trim();
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+
+    // Whether the block can run to its end, so execution carries on after the try (in a loop: with the next iteration)
+    private static boolean completesNormally(BlockTree block) {
+        List<? extends StatementTree> statements = block.getStatements();
+        if (statements.isEmpty()) {
+            return true;
+        }
+        switch (statements.get(statements.size() - 1).getKind()) {
+            case RETURN:
+            case THROW:
+            case BREAK:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    // A 'return <literal>' or 'return <CONSTANT>' in the block, or null
+    private static ReturnTree defaultReturn(BlockTree block) {
+        ReturnTree[] found = new ReturnTree[1];
+        block.accept(new TreeScanner<Void, Void>() {
+            @Override
+            public Void visitReturn(ReturnTree tree, Void v) {
+                if (found[0] == null && isConstant(tree.getExpression())) {
+                    found[0] = tree;
+                }
+                return null;
+            }
+
+            @Override
+            public Void visitLambdaExpression(LambdaExpressionTree tree, Void v) {
+                return null;
+            }
+
+            @Override
+            public Void visitClass(ClassTree tree, Void v) {
+                return null;
+            }
+        }, null);
+        return found[0];
+    }
+
+    private static boolean isConstant(Tree expression) {
+        if (expression == null) {
+            return false;
+        }
+        if (expression instanceof LiteralTree) {
+            return true;
+        }
+        if (expression instanceof UnaryTree) {
+            return isConstant(((UnaryTree) expression).getExpression());
+        }
+        String name = expression instanceof MemberSelectTree ? ((MemberSelectTree) expression).getIdentifier().toString()
+                : expression instanceof IdentifierTree ? ((IdentifierTree) expression).getName().toString() : null;
+        return name != null && name.equals(name.toUpperCase()) && Character.isLetter(name.charAt(0)); // CONSTANT_NAME
+    }
+
+    private static boolean uses(BlockTree block, String name) {
+        Boolean used = block.accept(new TreeScanner<Boolean, Void>() {
+            @Override
+            public Boolean visitIdentifier(IdentifierTree tree, Void v) {
+                return tree.getName().contentEquals(name);
+            }
+
+            @Override
+            public Boolean reduce(Boolean a, Boolean b) {
+                return Boolean.TRUE.equals(a) || Boolean.TRUE.equals(b);
+            }
+        }, null);
+        return Boolean.TRUE.equals(used);
+    }
+
+    private static boolean throwsIn(BlockTree block) {
+        Boolean thrown = block.accept(new TreeScanner<Boolean, Void>() {
+            @Override
+            public Boolean visitThrow(ThrowTree tree, Void v) {
+                return true;
+            }
+
+            @Override
+            public Boolean reduce(Boolean a, Boolean b) {
+                return Boolean.TRUE.equals(a) || Boolean.TRUE.equals(b);
+            }
+        }, null);
+        return Boolean.TRUE.equals(thrown);
+    }
+
+    private static boolean calls(BlockTree block, Set<String> methods) {
+        Boolean found = block.accept(new TreeScanner<Boolean, Void>() {
+            @Override
+            public Boolean visitMethodInvocation(MethodInvocationTree tree, Void v) {
+                Tree select = tree.getMethodSelect();
+                String name = select instanceof MemberSelectTree ? ((MemberSelectTree) select).getIdentifier().toString() : select.toString();
+                return methods.contains(name) || Boolean.TRUE.equals(super.visitMethodInvocation(tree, v));
+            }
+
+            @Override
+            public Boolean reduce(Boolean a, Boolean b) {
+                return Boolean.TRUE.equals(a) || Boolean.TRUE.equals(b);
+            }
+        }, null);
+        return Boolean.TRUE.equals(found);
+    }
+}
@@ -0,0 +1,287 @@
+package com.pbe;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Binary journal of exception events, for post-mortems on periods with lots of errors, where text on stdout
+// (like MyException's 'MyException[num]') is too slow and too big
+// An event is 32 bytes: timestamp, type id, site id, cause type id and a numeric payload (like MyException.num).
+// Exception types and sites are interned: their names are written once, as a definition record, and events refer to their id.
+// - the journal is a directory of segment files of a fixed size; events are appended through a memory-mapped buffer,
+//   which is a few plain stores per event, no system call
+// - when a segment is full the next one is started (and the oldest ones are deleted beyond maxSegments);
+//   each segment starts with the definitions of all names known so far, so it can be read on its own
+// - the reader maps the segments read-only and hands over the fields of each event straight from the mapping:
+//   no copying, no object per event
+// One writer thread per journal: append() is not thread-safe.
+//
+// Reader CLI: java com.pbe.ExceptionJournal dump <dir>   (all events as text)
+//             java com.pbe.ExceptionJournal stats <dir>  (counts per type and site)
+final class ExceptionJournal implements AutoCloseable {
+
+    static final int DEFAULT_SEGMENT_BYTES = 16 << 20;
+    static final int EVENT_BYTES = 32;
+
+    // Record layout: every record starts with a short kind and a short length (of the whole record, a multiple of 8)
+    // EVENT:     kind, length, int type, long timestamp (epoch nanos), int site, int cause type, long payload
+    // TYPE/SITE: kind, length, int id, short name length, name (UTF-8), padding
+    // A kind of 0 marks the end of the written part of a segment.
+    static final short EVENT = 1;
+    static final short TYPE = 2;
+    static final short SITE = 3;
+
+    private static final String SUFFIX = ".journal";
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final int maxSegments;
+
+    // Names by id (id 0 means none); types and sites share one range of ids
+    private final List<String> names = new ArrayList<>();
+    private final List<Short> kinds = new ArrayList<>();
+    private final Map<String, Integer> siteIds = new HashMap<>();
+    private final ClassValue<Integer> typeIds = new ClassValue<>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            return define(TYPE, type.getName());
+        }
+    };
+
+    private final long epochNanosAtStart = System.currentTimeMillis() * 1_000_000;
+    private final long nanoTimeAtStart = System.nanoTime();
+
+    private MappedByteBuffer segment;
+    private int segmentNumber = -1;
+
+    ExceptionJournal(Path dir) throws IOException {
+        this(dir, DEFAULT_SEGMENT_BYTES, Integer.MAX_VALUE);
+    }
+
+    // Keeps at most maxSegments segments of segmentBytes each; older ones are deleted
+    ExceptionJournal(Path dir, int segmentBytes, int maxSegments) throws IOException {
+        this.dir = Files.createDirectories(dir);
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+        names.add(null);
+        kinds.add((short) 0);
+        try (Stream<Path> existing = Files.list(dir)) {
+            segmentNumber = existing.map(ExceptionJournal::segmentNumber).max(Integer::compare).orElse(-1); // continue after them
+        }
+        nextSegment();
+    }
+
+    // Id to record events of the named site with
+    int site(String name) {
+        Integer id = siteIds.get(name);
+        if (id == null) {
+            id = define(SITE, name);
+            siteIds.put(name, id);
+        }
+        return id;
+    }
+
+    int typeId(Class<?> type) {
+        return typeIds.get(type);
+    }
+
+    // Appends an event for t at the site; the payload is MyException's num, or 0 for other exceptions
+    void append(int site, Throwable t) {
+        Throwable cause = t.getCause();
+        append(typeId(t.getClass()), site, t instanceof MyException ? ((MyException) t).getNum() : 0,
+                cause == null ? 0 : typeId(cause.getClass()));
+    }
+
+    // Appends an event with ids already looked up
+    void append(int type, int site, long payload, int cause) {
+        MappedByteBuffer b = segment;
+        int pos = b.position();
+        if (pos + EVENT_BYTES > segmentBytes - 8) { // always leave room for the end marker
+            nextSegment();
+            b = segment;
+            pos = b.position();
+        }
+        b.putInt(pos + 4, type);
+        b.putLong(pos + 8, epochNanosAtStart + (System.nanoTime() - nanoTimeAtStart));
+        b.putInt(pos + 16, site);
+        b.putInt(pos + 20, cause);
+        b.putLong(pos + 24, payload);
+        b.putShort(pos + 2, (short) EVENT_BYTES);
+        b.putShort(pos, EVENT); // kind last: until then, the reader sees the end of the segment here
+        b.position(pos + EVENT_BYTES);
+    }
+
+    private int define(short kind, String name) {
+        int id = names.size();
+        names.add(name);
+        kinds.add(kind);
+        if (segment != null) {
+            if (segment.position() + recordBytes(name) > segmentBytes - 8) {
+                nextSegment(); // writes this definition too
+            } else {
+                writeDefinition(kind, id, name);
+            }
+        }
+        return id;
+    }
+
+    private static int recordBytes(String name) {
+        return (10 + name.getBytes(StandardCharsets.UTF_8).length + 7) & ~7;
+    }
+
+    private void writeDefinition(short kind, int id, String name) {
+        byte[] utf8 = name.getBytes(StandardCharsets.UTF_8);
+        int length = recordBytes(name);
+        int pos = segment.position();
+        segment.putInt(pos + 4, id);
+        segment.putShort(pos + 8, (short) utf8.length);
+        segment.put(pos + 10, utf8);
+        segment.putShort(pos + 2, (short) length);
+        segment.putShort(pos, kind);
+        segment.position(pos + length);
+    }
+
+    private void nextSegment() {
+        try {
+            if (segment != null) {
+                segment.force();
+            }
+            segmentNumber++;
+            Path file = dir.resolve(String.format("%08d%s", segmentNumber, SUFFIX));
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes); // the mapping stays valid after closing the channel
+            }
+            segment.order(ByteOrder.LITTLE_ENDIAN);
+            for (int id = 1; id < names.size(); id++) {
+                writeDefinition(kinds.get(id), id, names.get(id));
+            }
+            if (segmentNumber >= maxSegments) {
+                Files.deleteIfExists(dir.resolve(String.format("%08d%s", segmentNumber - maxSegments, SUFFIX)));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("can't start journal segment " + segmentNumber + " in " + dir, e);
+        }
+    }
+
+    // Forces the written events to disk
+    @Override
+    public void close() {
+        segment.force();
+    }
+
+    private static int segmentNumber(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.endsWith(SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring(0, name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // ************************
+    // Reading
+    // ************************
+
+    // Receives the fields of each event; names can be looked up with the reader
+    interface Visitor {
+        void event(long epochNanos, int type, int site, long payload, int cause);
+    }
+
+    // Reads the segments of a journal directory, oldest first
+    static final class Reader {
+        private final Map<Integer, String> names = new HashMap<>();
+
+        String name(int id) {
+            return id == 0 ? "-" : names.getOrDefault(id, "#" + id);
+        }
+
+        // Scans all events in dir, returns their number
+        long scan(Path dir, Visitor visitor) throws IOException {
+            List<Path> files;
+            try (Stream<Path> list = Files.list(dir)) {
+                files = list.filter(p -> segmentNumber(p) >= 0).sorted().collect(Collectors.toList());
+            }
+            long events = 0;
+            for (Path file : files) {
+                events += scanSegment(file, visitor);
+            }
+            return events;
+        }
+
+        long scanSegment(Path file, Visitor visitor) throws IOException {
+            MappedByteBuffer b;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                b = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            b.order(ByteOrder.LITTLE_ENDIAN);
+            long events = 0;
+            int pos = 0;
+            while (pos + 8 <= b.limit()) {
+                short kind = b.getShort(pos);
+                int length = b.getShort(pos + 2) & 0xFFFF;
+                if (kind == 0 || length == 0 || pos + length > b.limit()) {
+                    break; // end of the written part
+                }
+                if (kind == EVENT) {
+                    visitor.event(b.getLong(pos + 8), b.getInt(pos + 4), b.getInt(pos + 16), b.getLong(pos + 24), b.getInt(pos + 20));
+                    events++;
+                } else if (kind == TYPE || kind == SITE) {
+                    byte[] utf8 = new byte[b.getShort(pos + 8)];
+                    b.get(pos + 10, utf8);
+                    names.put(b.getInt(pos + 4), new String(utf8, StandardCharsets.UTF_8));
+                }
+                pos += length;
+            }
+            return events;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2 || !(args[0].equals("dump") || args[0].equals("stats"))) {
+            System.out.println("usage: java com.pbe.ExceptionJournal dump|stats <journal directory>");
+            return;
+        }
+        Path dir = Paths.get(args[1]);
+        Reader reader = new Reader();
+        if (args[0].equals("dump")) {
+            reader.scan(dir, (epochNanos, type, site, payload, cause) -> System.out.printf("%-30s %-40s %-24s %12d cause %s%n",
+                    Instant.ofEpochSecond(0, epochNanos),
+                    reader.name(type), reader.name(site), payload, reader.name(cause)));
+        } else {
+            Map<Long, long[]> counts = new HashMap<>(); // (type, site) -> count
+            long[] first = {Long.MAX_VALUE};
+            long[] last = {Long.MIN_VALUE};
+            long events = reader.scan(dir, (epochNanos, type, site, payload, cause) -> {
+                counts.computeIfAbsent(((long) type << 32) | site, k -> new long[1])[0]++;
+                first[0] = Math.min(first[0], epochNanos);
+                last[0] = Math.max(last[0], epochNanos);
+            });
+            System.out.printf("%,d events", events);
+            if (events > 0) {
+                double seconds = (last[0] - first[0]) / 1e9;
+                System.out.printf(" in %.3f s", seconds);
+            }
+            System.out.println();
+            Map<String, Long> sorted = new TreeMap<>();
+            counts.forEach((k, v) -> sorted.put(reader.name((int) (k >>> 32)) + " at " + reader.name((int) (long) k), v[0]));
+            sorted.forEach((k, v) -> System.out.printf("%,14d  %s%n", v, k));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.pbe;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+// Throughput of ExceptionJournal, writing from a single thread and scanning it back
+// - append ids: events with the ids already looked up (the fastest path, target > 5M events/s)
+// - append throwable: the type and cause looked up from a MyException (preallocated, so only the journal is measured)
+// - scan: reading all events back through the read-only mapping
+// The journal is written to a temporary directory, in segments of 64 MB of which the last 4 are kept, and deleted afterwards.
+public class ExceptionJournalBenchmark {
+
+    static final int EVENTS = 20_000_000;
+    static final int SEGMENT_BYTES = 64 << 20;
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("journal");
+        try {
+            MyException e = new MyException(42, false);
+            try (ExceptionJournal journal = new ExceptionJournal(dir, SEGMENT_BYTES, 4)) {
+                int site = journal.site("ExceptionDemo.compute");
+                int type = journal.typeId(MyException.class);
+                for (int round = 0; round < 3; round++) {
+                    long start = System.nanoTime();
+                    for (int i = 0; i < EVENTS; i++) {
+                        journal.append(type, site, i, 0);
+                    }
+                    report("append ids", EVENTS, System.nanoTime() - start);
+                }
+                for (int round = 0; round < 3; round++) {
+                    long start = System.nanoTime();
+                    for (int i = 0; i < EVENTS; i++) {
+                        journal.append(site, e);
+                    }
+                    report("append throwable", EVENTS, System.nanoTime() - start);
+                }
+            }
+
+            for (int round = 0; round < 3; round++) {
+                ExceptionJournal.Reader reader = new ExceptionJournal.Reader();
+                long[] sum = {0};
+                long start = System.nanoTime();
+                long events = reader.scan(dir, (epochNanos, type, site, payload, cause) -> sum[0] += payload);
+                report("scan", events, System.nanoTime() - start);
+                Bench.sink = sum[0];
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    static void report(String label, long events, long nanos) {
+        System.out.printf("%-20s %,12d events %8.1f ms %,14.0f events/s%n", label, events, nanos / 1e6, events * 1e9 / nanos);
+    }
+}
@@ -0,0 +1,186 @@
+package com.pbe;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.ObjectName;
+
+// Registry counting caught exceptions per throw site and exception type, cheap enough to leave on in production
+// A catch block records what it caught against the site the exception came from:
+//
+//   static final ExceptionMetrics.Site SITE = ExceptionMetrics.site("ExceptionPropagation.a");
+//   ...
+//   } catch (Exception e) {
+//       SITE.record(e);
+//
+// Recording is a lookup of the exception's class in the site's small map plus a LongAdder increment:
+// no allocation, no lock, and LongAdder stripes its count over cells, so threads recording at the same time don't contend.
+// All the adding up happens on the reading side: counts() / dump() / topSites(), or through JMX as com.pbe:type=ExceptionMetrics
+public final class ExceptionMetrics implements ExceptionMetricsMBean {
+
+    static final String OBJECT_NAME = "com.pbe:type=ExceptionMetrics";
+
+    private static final Map<String, Site> SITES = new ConcurrentHashMap<>();
+
+    private ExceptionMetrics() {
+    }
+
+    // A place exceptions are thrown from, with a counter per exception type
+    // Get it once with ExceptionMetrics.site(name) and keep it in a static final field
+    static final class Site {
+        final String name;
+        private final Map<Class<?>, Counter> byType = new ConcurrentHashMap<>();
+        // Counter of the last recorded type: a site usually sees one type, which then skips the map lookup
+        // Counter is immutable apart from its LongAdder, so reading a stale value from another thread is harmless
+        private Counter last = new Counter(null);
+
+        private Site(String name) {
+            this.name = name;
+        }
+
+        void record(Throwable e) {
+            record(e.getClass());
+        }
+
+        void record(Class<? extends Throwable> type) {
+            Counter counter = last;
+            if (counter.type != type) {
+                counter = byType.get(type);
+                if (counter == null) { // first exception of this type at this site
+                    counter = byType.computeIfAbsent(type, Counter::new);
+                }
+                last = counter;
+            }
+            counter.count.increment();
+        }
+
+        long total() {
+            long total = 0;
+            for (Counter counter : byType.values()) {
+                total += counter.count.sum();
+            }
+            return total;
+        }
+
+        // Count per exception type name
+        Map<String, Long> counts() {
+            Map<String, Long> counts = new TreeMap<>();
+            byType.forEach((type, counter) -> counts.put(type.getName(), counter.count.sum()));
+            return counts;
+        }
+
+        void reset() {
+            byType.values().forEach(counter -> counter.count.reset());
+        }
+    }
+
+    private static final class Counter {
+        final Class<?> type;
+        final LongAdder count = new LongAdder();
+
+        Counter(Class<?> type) {
+            this.type = type;
+        }
+    }
+
+    // Returns the site with the given name, registering it on first use
+    static Site site(String name) {
+        return SITES.computeIfAbsent(name, Site::new);
+    }
+
+    // The n sites with the most recorded exceptions, hottest first
+    static List<Site> topSites(int n) {
+        List<Site> sites = new ArrayList<>(SITES.values());
+        sites.sort(Comparator.comparingLong(Site::total).reversed());
+        return sites.subList(0, Math.min(n, sites.size()));
+    }
+
+    // Plain-text dump of all sites, hottest first, one line per site and exception type
+    static String dump() {
+        StringBuilder sb = new StringBuilder();
+        for (Site site : topSites(Integer.MAX_VALUE)) {
+            sb.append(site.name).append(": ").append(site.total()).append('\n');
+            site.counts().forEach((type, count) -> sb.append("    ").append(type).append(": ").append(count).append('\n'));
+        }
+        return sb.toString();
+    }
+
+    static void resetAll() {
+        SITES.values().forEach(Site::reset);
+    }
+
+    // Registers the MBean with the platform MBeanServer (once), so the counts can be read with e.g. JConsole
+    static synchronized void registerMBean() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new ExceptionMetrics(), name);
+            }
+        } catch (Exception e) {
+            System.out.println("Unable to register " + OBJECT_NAME + ": " + e);
+        }
+    }
+
+    // ExceptionMetricsMBean implementation
+
+    @Override
+    public long getTotal() {
+        long total = 0;
+        for (Site site : SITES.values()) {
+            total += site.total();
+        }
+        return total;
+    }
+
+    @Override
+    public String[] getTopSites() {
+        return topSites(10).stream().map(s -> s.name + ": " + s.total()).toArray(String[]::new);
+    }
+
+    @Override
+    public String getDump() {
+        return dump();
+    }
+
+    @Override
+    public void reset() {
+        resetAll();
+    }
+
+    // Runs the demos that catch exceptions, shows the counts, and measures the cost of recording
+    public static void main(String[] args) {
+        registerMBean();
+        new ExceptionPropagation().c();
+        new TestThrows().c();
+        for (int i = 0; i < 3; i++) {
+            try {
+                Main.throwtest();
+            } catch (NullPointerException e) {
+                // counted inside throwtest()
+            }
+        }
+        System.out.println();
+        System.out.print(dump());
+        System.out.println();
+
+        Site bench = site("ExceptionMetrics.bench");
+        ArithmeticException e = new ArithmeticException();
+        Bench.run("Site.record()", 1_000_000, i -> {
+            bench.record(e);
+            return i;
+        });
+
+        // Reading the same numbers back the way a JMX client does
+        try {
+            String[] top = (String[]) ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName(OBJECT_NAME), "TopSites");
+            System.out.println("TopSites through JMX: " + String.join(", ", top));
+        } catch (Exception ex) {
+            System.out.println("Unable to read " + OBJECT_NAME + ": " + ex);
+        }
+    }
+}
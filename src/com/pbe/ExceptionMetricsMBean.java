@@ -0,0 +1,17 @@
+package com.pbe;
+
+// JMX view of ExceptionMetrics (standard MBean interface, registered as com.pbe:type=ExceptionMetrics)
+public interface ExceptionMetricsMBean {
+
+    // Number of exceptions recorded at all sites
+    long getTotal();
+
+    // The 10 hottest sites as "name: count", hottest first
+    String[] getTopSites();
+
+    // Plain-text dump of all sites and exception types
+    String getDump();
+
+    // Sets all counts back to 0
+    void reset();
+}
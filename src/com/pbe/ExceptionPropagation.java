@@ -5,7 +5,15 @@ package com.pbe;
 // It continues dropping to the previous method until caught or until reaching the 'bottom' of the call stack.
 // If there's no catch match, Java run-time system default exception handler will handle the situation, resulting in program termination.
 public class ExceptionPropagation {
+
+    // Counts the exceptions caught in c(), which are thrown in a()
+    static final ExceptionMetrics.Site A_SITE = ExceptionMetrics.site("ExceptionPropagation.a");
+
+    // Lets a configured fault be thrown in a() instead of the '/ zero', see FaultInjector
+    static final FaultInjector.Site A_FAULT = FaultInjector.site("ExceptionPropagation.a");
+
     void a() {
+        A_FAULT.inject();
         int num = 1/0; // causing '/ zero' exception
     }
     void b() {
@@ -16,13 +24,40 @@ public class ExceptionPropagation {
             b();
 //        } catch(NullPointerException e) { // will result in program termination as the '/ null' exception is not caught
         } catch(Exception e) { // will catch the '/ null' exception
-            System.out.println("Exception caught: " + e);
+            A_SITE.record(e);
+            AsyncLogger.log("Exception caught: ", e);
+        }
+    }
+
+    // The same chain without unwinding: a() stores the error in the thread's ErrorSlot and returns, b() checks the slot
+    // and returns too, and cSlot() turns the error back into an exception at the boundary, see ErrorSlot
+    int a(ErrorSlot slot) {
+        int divisor = 0;
+        if (divisor == 0) {
+            return slot.fail(ErrorCatalogue.DIVIDE_BY_ZERO, 1); // instead of the '/ zero' exception
+        }
+        return 1 / divisor;
+    }
+    int b(ErrorSlot slot) {
+        int num = a(slot);
+        if (slot.failed()) {
+            return 0; // pass the error on
+        }
+        return num;
+    }
+    void cSlot() {
+        try {
+            ErrorSlot.call(this::b);
+        } catch(CodedException e) { // the error, as an exception again
+            A_SITE.record(e);
+            AsyncLogger.log("Error returned: ", e);
         }
     }
 
     public static void main(String args[]){
         ExceptionPropagation obj=new ExceptionPropagation();
         obj.c();
+        obj.cSlot();
         System.out.println("Continue program");
     }
 }
@@ -0,0 +1,157 @@
+package com.pbe;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Decides per occurrence whether an exception gets full detail (stack trace, reporting), so that a flood of exceptions
+// costs little more than counting them, while a trickle is still reported in full:
+//
+//   static final ExceptionSampler.Site SITE = SAMPLER.site("ExceptionDemo.check");
+//   ...
+//   boolean detailed = SITE.sample();
+//   throw detailed ? new MyException(a, true) : MyException.of(a); // stack trace only when sampled
+//   ...
+//   } catch (MyException e) {
+//       if (detailed) AsyncLogger.log("Caught: ", e);
+//
+// - per site and per window (e.g. a second), the first firstN occurrences are sampled
+// - after that, occurrences are sampled at random, with a probability that keeps the site within its budget
+//   (sampled events per second): the probability follows from the number of occurrences in the previous window
+// - all occurrences are counted exactly, sampled or not
+// The budget is a hard limit per window as well, so a sudden burst can't go over it either.
+// sample() doesn't read the clock itself (System.nanoTime() can take longer than the rest of sample() together):
+// a daemon thread updates a coarse clock every TICK_NANOS, which is all the precision a window needs.
+// That thread is only started by the first sample(), so a program that never samples doesn't get it.
+final class ExceptionSampler {
+
+    private static final long ALWAYS = 1L << 31;
+    static final long TICK_NANOS = 1_000_000;
+
+    // The coarse clock; the JVM initializes this class, and so starts its thread, on the first read of Clock.now
+    private static final class Clock {
+        static volatile long now = System.nanoTime();
+
+        static {
+            Thread ticker = new Thread(() -> {
+                while (true) {
+                    LockSupport.parkNanos(TICK_NANOS);
+                    now = System.nanoTime();
+                }
+            }, "exception-sampler-clock");
+            ticker.setDaemon(true);
+            ticker.start();
+        }
+    }
+
+    private final int firstN;
+    private final long windowNanos;
+    private final long budgetPerWindow;
+    private final Map<String, Site> sites = new ConcurrentHashMap<>();
+
+    // Full detail for the first firstN occurrences per site per window, and at most budgetPerSecond sampled ones per site per second
+    ExceptionSampler(int firstN, long windowMillis, long budgetPerSecond) {
+        if (firstN > budgetPerSecond * windowMillis / 1000) {
+            throw new IllegalArgumentException("firstN " + firstN + " doesn't fit in a budget of " + budgetPerSecond + "/s");
+        }
+        this.firstN = firstN;
+        this.windowNanos = windowMillis * 1_000_000;
+        this.budgetPerWindow = Math.max(1, budgetPerSecond * windowMillis / 1000);
+    }
+
+    // Returns the site with the given name, registering it on first use; keep it in a static final field
+    Site site(String name) {
+        return sites.computeIfAbsent(name, Site::new);
+    }
+
+    final class Site {
+        final String name;
+        private final LongAdder sampled = new LongAdder();
+        private final AtomicLong inWindow = new AtomicLong();         // occurrences in the current window
+        private final AtomicLong sampledInWindow = new AtomicLong();  // of which sampled
+        private final AtomicLong inPastWindows = new AtomicLong();
+        private volatile long windowStart = System.nanoTime(); // not the coarse clock yet: that would start its thread
+        // Chance (scaled to 2^31) of sampling an occurrence after the first firstN of a window
+        private volatile long threshold = ALWAYS;
+
+        private Site(String name) {
+            this.name = name;
+        }
+
+        // Counts an occurrence; returns true if it's to get full detail
+        boolean sample() {
+            long now = Clock.now;
+            if (now - windowStart >= windowNanos) {
+                nextWindow(now);
+            }
+            long n = inWindow.incrementAndGet();
+            if (n > firstN && ThreadLocalRandom.current().nextInt() >>> 1 >= threshold) {
+                return false;
+            }
+            if (sampledInWindow.incrementAndGet() > budgetPerWindow) {
+                return false; // budget used up: burst within the window
+            }
+            sampled.increment();
+            return true;
+        }
+
+        // Starts a new window; sets the sampling probability from the occurrences in the one that ended
+        private synchronized void nextWindow(long now) {
+            long start = windowStart;
+            if (now - start < windowNanos) {
+                return; // another thread did it
+            }
+            long windows = (now - start) / windowNanos;
+            long count = inWindow.getAndSet(0); // an increment lands either before or after: the total stays exact
+            inPastWindows.addAndGet(count);
+            long lastCount = windows == 1 ? count : 0; // idle windows in between: start from scratch
+            long beyondFirst = lastCount - firstN;
+            long room = budgetPerWindow - firstN;
+            threshold = beyondFirst <= room ? ALWAYS : (long) ((double) room / beyondFirst * ALWAYS);
+            sampledInWindow.set(0);
+            windowStart = start + windows * windowNanos;
+        }
+
+        // All occurrences
+        long total() {
+            return inPastWindows.get() + inWindow.get();
+        }
+
+        // Occurrences that got full detail
+        long sampled() {
+            return sampled.sum();
+        }
+
+        public String toString() {
+            return name + ": " + total() + " occurrences, " + sampled() + " sampled";
+        }
+    }
+
+    // Demo: a site at low and one at high rate, and ExceptionDemo.checkSampled
+    public static void main(String[] args) {
+        ExceptionSampler sampler = new ExceptionSampler(5, 1000, 100);
+        Site slow = sampler.site("slow");
+        for (int i = 0; i < 10; i++) {
+            System.out.println("occurrence " + i + (slow.sample() ? ": sampled" : ": counted only"));
+        }
+        Site fast = sampler.site("fast");
+        long end = System.nanoTime() + 3_000_000_000L;
+        while (System.nanoTime() < end) {
+            fast.sample();
+        }
+        System.out.println(slow);
+        System.out.println(fast + " (budget 100/s, over 3 s)");
+        int withStackTrace = 0;
+        for (int i = 0; i < 100_000; i++) {
+            try {
+                ExceptionDemo.checkSampled(20);
+            } catch (MyException e) {
+                withStackTrace += e.getStackTrace().length > 0 ? 1 : 0;
+            }
+        }
+        System.out.println(ExceptionDemo.CHECK_SAMPLES + ", " + withStackTrace + " with stack trace");
+    }
+}
@@ -0,0 +1,78 @@
+package com.pbe;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.Channels;
+import java.util.concurrent.locks.LockSupport;
+
+// CPU cost of exceptions at 1M per second, with and without sampling
+// The loop throws and catches MyException at a steady RATE per second for SECONDS seconds, and measures the CPU time of
+// the whole process (so including the AsyncLogger drain thread and GC):
+// - baseline: stackless MyException.of(), nothing reported: the cost of the throwing itself
+// - sampled: ExceptionSampler decides per exception; sampled ones get a stack trace and are logged through an AsyncLogger
+//   (to a channel discarding the output); the rest are stackless and only counted
+// - full detail: every exception with stack trace and logged, as the catch blocks in Main do; at 1M/s this can't keep up,
+//   so it's reported with the rate it actually reached
+// The sampling overhead is sampled minus baseline, in percent of one CPU; the run fails (exit code 1) if it's over MAX_OVERHEAD_PERCENT.
+public class ExceptionSamplerBenchmark {
+
+    static final int RATE = 1_000_000;
+    static final int SECONDS = 3;
+    static final int BATCH = 1_000;
+    static final double MAX_OVERHEAD_PERCENT = 5.0;
+
+    enum Mode { BASELINE, SAMPLED, FULL }
+
+    public static void main(String[] args) throws IOException {
+        ExceptionSampler sampler = new ExceptionSampler(10, 1000, 1000);
+        ExceptionSampler.Site site = sampler.site("bench");
+        try (AsyncLogger logger = new AsyncLogger(Channels.newChannel(OutputStream.nullOutputStream()), 1 << 14, AsyncLogger.FullPolicy.DROP)) {
+            run(Mode.BASELINE, site, logger); // warm-up
+            run(Mode.SAMPLED, site, logger);
+            double baseline = run(Mode.BASELINE, site, logger);
+            double sampled = run(Mode.SAMPLED, site, logger);
+            run(Mode.FULL, site, logger);
+            System.out.println(site + " (budget 1000/s)");
+            double overhead = sampled - baseline;
+            System.out.printf("sampling overhead: %.1f%% of a CPU at %,d exceptions/s (limit %.1f%%)%n", overhead, RATE, MAX_OVERHEAD_PERCENT);
+            if (overhead > MAX_OVERHEAD_PERCENT) {
+                System.out.println("FAILED");
+                System.exit(1);
+            }
+            System.out.println("OK");
+        }
+    }
+
+    // Runs the mode at RATE exceptions per second, returns the CPU used in percent of one CPU
+    static double run(Mode mode, ExceptionSampler.Site site, AsyncLogger logger) {
+        com.sun.management.OperatingSystemMXBean os = (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        long cpuStart = os.getProcessCpuTime();
+        long start = System.nanoTime();
+        long end = start + SECONDS * 1_000_000_000L;
+        long count = 0;
+        while (System.nanoTime() < end) {
+            for (int i = 0; i < BATCH; i++) {
+                boolean detailed = mode == Mode.FULL || mode == Mode.SAMPLED && site.sample();
+                try {
+                    throw detailed ? new MyException(11 + i, true) : MyException.of(11 + i);
+                } catch (MyException e) {
+                    if (detailed) {
+                        logger.enqueue("Caught: ", e);
+                    }
+                    Bench.sink += e.getNum();
+                }
+            }
+            count += BATCH;
+            long due = start + count * 1_000_000_000L / RATE; // when this batch is due at RATE
+            long ahead = due - System.nanoTime();
+            if (ahead > 0) {
+                LockSupport.parkNanos(ahead);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double cpu = (os.getProcessCpuTime() - cpuStart) / 1e9 / seconds * 100;
+        System.out.printf("%-10s %,12.0f exceptions/s %6.1f%% CPU%n", mode.name().toLowerCase(), count / seconds, cpu);
+        return cpu;
+    }
+}
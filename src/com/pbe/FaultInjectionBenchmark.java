@@ -0,0 +1,147 @@
+package com.pbe;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.concurrent.atomic.LongAdder;
+
+// FaultInjector in use: a request handler with an injection site, run under storms of injected faults
+// - what the site costs while it's off, and with a plan that never fires
+// - throughput and latency (per call, including ~40 ns of System.nanoTime()) at fault rates from 0 to 50%
+// - a storm changed at runtime: THREADS threads keep handling requests while the main thread steps through the plans
+// - determinism and replay: a run at 5% is recorded, its schedule saved to a file, loaded and replayed; the replay, and a run
+//   with the same seed, must fail exactly the same requests (exit code 1 if not)
+public class FaultInjectionBenchmark {
+
+    static final String SITE_NAME = "FaultInjectionBenchmark.handle";
+    static final FaultInjector.Site SITE = FaultInjector.site(SITE_NAME);
+    static final double[] RATES = {0, 0.001, 0.01, 0.1, 0.5};
+    static final int CALLS = 1_000_000;
+    static final int THREADS = 4;
+    static final long PHASE_MILLIS = 250;
+
+    // A request: some work, which fails when the site fires; 1 if handled, 0 if failed
+    static int handle(int i) {
+        try {
+            SITE.inject();
+            Bench.consumeCpu(50);
+            return 1;
+        } catch (IllegalStateException e) {
+            return 0;
+        }
+    }
+
+    static int handleWithoutSite(int i) {
+        try {
+            Bench.consumeCpu(50);
+            return 1;
+        } catch (IllegalStateException e) {
+            return 0;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Bench.run("without site", CALLS, FaultInjectionBenchmark::handleWithoutSite);
+        Bench.run("site off", CALLS, FaultInjectionBenchmark::handle);
+        FaultInjector.configure(SITE_NAME, IllegalStateException.class, 0, 1);
+        Bench.run("site on, probability 0", CALLS, FaultInjectionBenchmark::handle);
+        System.out.println();
+
+        for (double rate : RATES) {
+            FaultInjector.configure(SITE_NAME, IllegalStateException.class, rate, 42);
+            LatencyHistogram latency = new LatencyHistogram();
+            long start = System.nanoTime();
+            for (int i = 0; i < CALLS; i++) {
+                long t = System.nanoTime();
+                Bench.sink = handle(i);
+                latency.record(System.nanoTime() - t);
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("%5.1f%% faults: %,12.0f calls/s, %,7d failed, latency %s%n", rate * 100,
+                    CALLS / (elapsed / 1e9), SITE.fired(), latency.summary(1, "ns"));
+        }
+        System.out.println();
+
+        changingStorm();
+        System.out.println();
+
+        if (!replay()) {
+            System.out.println("FAILED: replay doesn't match the recorded run");
+            System.exit(1);
+        }
+        FaultInjector.disableAll();
+    }
+
+    // Worker threads handle requests while the plan changes under them
+    static void changingStorm() throws InterruptedException {
+        LongAdder handled = new LongAdder();
+        LongAdder failed = new LongAdder();
+        FaultInjector.disable(SITE_NAME);
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; !Thread.currentThread().isInterrupted(); i++) {
+                    if (handle(i) == 0) {
+                        failed.increment();
+                    }
+                    handled.increment();
+                }
+            });
+            threads[t].start();
+        }
+        double[] storm = {0, 0.01, 0.2, 0.5, 0.2, 0};
+        for (double rate : storm) {
+            if (rate == 0) {
+                FaultInjector.disable(SITE_NAME);
+            } else {
+                FaultInjector.configure(SITE_NAME, IllegalStateException.class, rate, 7);
+            }
+            long handledBefore = handled.sum();
+            long failedBefore = failed.sum();
+            Thread.sleep(PHASE_MILLIS);
+            long calls = handled.sum() - handledBefore;
+            System.out.printf("%d threads, %5.1f%% faults: %,12.0f calls/s, %5.1f%% failed%n", THREADS, rate * 100,
+                    calls * 1000.0 / PHASE_MILLIS, 100.0 * (failed.sum() - failedBefore) / Math.max(1, calls));
+        }
+        for (Thread t : threads) {
+            t.interrupt();
+            t.join();
+        }
+    }
+
+    // Records a run, replays its saved schedule and reruns with the same seed; true if all three fail the same requests
+    static boolean replay() throws IOException {
+        FaultInjector.configure(SITE_NAME, IllegalStateException.class, 0.05, 7);
+        FaultInjector.Recording recording = FaultInjector.Recording.start();
+        BitSet recorded = failures();
+        FaultInjector.Schedule schedule = recording.stop();
+
+        Path file = Files.createTempFile("faults", ".txt");
+        try {
+            schedule.save(file);
+            FaultInjector.Schedule.load(file).replay();
+        } finally {
+            Files.delete(file);
+        }
+        BitSet replayed = failures();
+        FaultInjector.configure(SITE_NAME, IllegalStateException.class, 0.05, 7);
+        BitSet rerun = failures();
+
+        System.out.println("recorded " + schedule + ", " + recorded.cardinality() + " failed requests; replayed: "
+                + replayed.cardinality() + ", same seed: " + rerun.cardinality());
+        boolean same = recorded.equals(replayed) && recorded.equals(rerun) && schedule.faults.size() == recorded.cardinality();
+        System.out.println(same ? "OK: the same requests failed" : "different requests failed");
+        return same;
+    }
+
+    static BitSet failures() {
+        BitSet failed = new BitSet();
+        for (int i = 0; i < 100_000; i++) {
+            if (handle(i) == 0) {
+                failed.set(i);
+            }
+        }
+        return failed;
+    }
+}
@@ -0,0 +1,331 @@
+package com.pbe;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Fault injection: makes a named site in the code fail on demand, next to the demos' hard-coded 1/0, c[10] and val--
+//
+//   static final FaultInjector.Site A_FAULT = FaultInjector.site("ExceptionPropagation.a");
+//   ...
+//   A_FAULT.inject();                          // throws the configured exception when the site's plan says so
+//   return GETNUM_FAULT.fire() ? 0 : val--;    // or: a bad value instead of an exception
+//
+// Per site a plan says what to throw and when:
+// - with a probability, decided per call from the seed and the call's number at the site (its n-th call since the plan
+//   was set), so the same seed makes the same calls fail, run after run
+// - or on a schedule: a list of call numbers, each with its exception type
+// Consulting a site is lock-free: a volatile read of the plan (null while off, and that's all an unconfigured site costs),
+// an increment of the plan's call counter, and a hash of seed and call number. A new plan replaces the old one at once,
+// from any thread, and starts counting calls from 0.
+// With several threads calling a site, which thread gets which call number depends on the scheduling, but the numbers
+// that fail, and so the number of faults, don't.
+// A Recording collects the faults fired while it runs; its Schedule can be saved, loaded and replayed, which fires the same
+// exceptions at the same call numbers again. A schedule file can also be made from elsewhere, e.g. from production logs:
+// one line per fault: <site> <exception class> <call number>.
+// Sites can be set at start-up with -Dcom.pbe.faults=<site>:<exception class>:<probability>[:<seed>],...
+// (e.g. -Dcom.pbe.faults=Main.nesttry:ArrayIndexOutOfBoundsException:0.1:42); classes without a package are taken from java.lang.
+// Only unchecked exceptions can be injected: a site can't throw a checked exception its method doesn't declare.
+final class FaultInjector {
+
+    private static final Map<String, Site> SITES = new ConcurrentHashMap<>();
+    private static volatile Recording recording; // null when not recording
+
+    static {
+        String setting = System.getProperty("com.pbe.faults");
+        if (setting != null) {
+            for (String entry : setting.split(",")) {
+                String[] parts = entry.trim().split(":");
+                configure(parts[0], exceptionClass(parts[1]), Double.parseDouble(parts[2]), parts.length > 3 ? Long.parseLong(parts[3]) : 0);
+            }
+        }
+    }
+
+    private FaultInjector() {
+    }
+
+    // A place faults can be injected; get it once with FaultInjector.site(name) and keep it in a static final field
+    static final class Site {
+        final String name;
+        private volatile Plan plan; // null: off
+
+        private Site(String name) {
+            this.name = name;
+        }
+
+        // Throws the planned exception if this call is to fail
+        void inject() {
+            Plan p = plan;
+            if (p != null) {
+                long call = p.calls.getAndIncrement();
+                Class<? extends RuntimeException> type = p.fault(call);
+                if (type != null) {
+                    fired(p, call, type);
+                    throw create(type, "fault injected at " + name + ", call " + call);
+                }
+            }
+        }
+
+        // Whether this call is to fail, for sites where the fault is a bad value rather than an exception
+        boolean fire() {
+            Plan p = plan;
+            if (p != null) {
+                long call = p.calls.getAndIncrement();
+                Class<? extends RuntimeException> type = p.fault(call);
+                if (type != null) {
+                    fired(p, call, type);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void fired(Plan p, long call, Class<? extends RuntimeException> type) {
+            p.fired.increment();
+            Recording r = recording;
+            if (r != null) {
+                r.faults.add(new Fault(name, type.getName(), call));
+            }
+        }
+
+        // Calls and faults since the plan was set
+        long calls() {
+            Plan p = plan;
+            return p != null ? p.calls.get() : 0;
+        }
+
+        long fired() {
+            Plan p = plan;
+            return p != null ? p.fired.sum() : 0;
+        }
+
+        public String toString() {
+            Plan p = plan;
+            return name + ": " + (p == null ? "off" : p + ", " + p.fired.sum() + " of " + p.calls.get() + " calls failed");
+        }
+    }
+
+    // What a site throws, and when; only its counters change
+    private static final class Plan {
+        private static final double UNIT = 1L << 53;
+
+        final Class<? extends RuntimeException> type; // null for a schedule
+        final double probability;
+        final long threshold;                         // probability as a fraction of 2^53
+        final long seed;
+        final long[] schedule;                        // sorted call numbers, or null
+        final List<Class<? extends RuntimeException>> scheduleTypes;
+        final AtomicLong calls = new AtomicLong();
+        final LongAdder fired = new LongAdder();
+
+        Plan(Class<? extends RuntimeException> type, double probability, long seed) {
+            this.type = type;
+            this.probability = probability;
+            this.threshold = (long) (probability * UNIT);
+            this.seed = seed;
+            this.schedule = null;
+            this.scheduleTypes = null;
+        }
+
+        Plan(long[] schedule, List<Class<? extends RuntimeException>> types) {
+            this.type = null;
+            this.probability = 0;
+            this.threshold = 0;
+            this.seed = 0;
+            this.schedule = schedule;
+            this.scheduleTypes = types;
+        }
+
+        // The type to throw on the given call, or null if it doesn't fail
+        Class<? extends RuntimeException> fault(long call) {
+            if (schedule != null) {
+                int i = Arrays.binarySearch(schedule, call);
+                return i >= 0 ? scheduleTypes.get(i) : null;
+            }
+            return mix(seed + call * 0x9E3779B97F4A7C15L) >>> 11 < threshold ? type : null;
+        }
+
+        public String toString() {
+            return schedule != null ? "schedule of " + schedule.length + " faults"
+                    : type.getSimpleName() + " with probability " + probability + ", seed " + seed;
+        }
+    }
+
+    // SplittableRandom's mixing function: a well spread 64 bit hash of a call number, without any shared random state
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // The site with the given name, created (off) if it doesn't exist yet
+    static Site site(String name) {
+        Site site = SITES.get(name);
+        return site != null ? site : SITES.computeIfAbsent(name, Site::new);
+    }
+
+    // Makes the site throw the exception type on the given share (0 - 1) of its calls, chosen by the seed
+    static void configure(String site, Class<? extends RuntimeException> type, double probability, long seed) {
+        if (probability < 0 || probability > 1) {
+            throw new IllegalArgumentException("probability " + probability + " is not between 0 and 1");
+        }
+        create(type, "test"); // fail here, not at the site, if the type can't be created
+        site(site).plan = new Plan(type, probability, seed);
+    }
+
+    static void disable(String site) {
+        site(site).plan = null;
+    }
+
+    static void disableAll() {
+        SITES.values().forEach(s -> s.plan = null);
+    }
+
+    // Sites with a plan
+    static List<Site> active() {
+        List<Site> active = new ArrayList<>();
+        SITES.values().forEach(s -> {
+            if (s.plan != null) {
+                active.add(s);
+            }
+        });
+        return active;
+    }
+
+    // One injected fault: the site, the exception class and the call number
+    static final class Fault {
+        final String site;
+        final String type;
+        final long call;
+
+        Fault(String site, String type, long call) {
+            this.site = site;
+            this.type = type;
+            this.call = call;
+        }
+
+        public String toString() {
+            return site + " " + type + " " + call;
+        }
+    }
+
+    // Collects the faults fired from start() to stop()
+    static final class Recording {
+        private final ConcurrentLinkedQueue<Fault> faults = new ConcurrentLinkedQueue<>(); // lock-free
+
+        static Recording start() {
+            Recording r = new Recording();
+            recording = r;
+            return r;
+        }
+
+        Schedule stop() {
+            if (recording == this) {
+                recording = null;
+            }
+            return new Schedule(new ArrayList<>(faults));
+        }
+    }
+
+    // Faults to fire at given call numbers
+    static final class Schedule {
+        final List<Fault> faults;
+
+        Schedule(List<Fault> faults) {
+            this.faults = faults;
+        }
+
+        // Reads a schedule file: a fault per line, <site> <exception class> <call number>; empty lines and # comments are skipped
+        static Schedule load(Path file) throws IOException {
+            List<Fault> faults = new ArrayList<>();
+            for (String line : Files.readAllLines(file)) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\\s+");
+                if (parts.length != 3) {
+                    throw new IOException("not a fault (<site> <exception class> <call number>): " + line);
+                }
+                faults.add(new Fault(parts[0], parts[1], Long.parseLong(parts[2])));
+            }
+            return new Schedule(faults);
+        }
+
+        void save(Path file) throws IOException {
+            try (BufferedWriter out = Files.newBufferedWriter(file)) {
+                out.write("# <site> <exception class> <call number>");
+                out.newLine();
+                for (Fault f : faults) {
+                    out.write(f.toString());
+                    out.newLine();
+                }
+            }
+        }
+
+        // Sets a plan on every site in the schedule, replacing the plans they had; other sites keep theirs.
+        // Every exception type is checked first, like configure() does, so a bad schedule fails here and changes no site.
+        void replay() {
+            Map<String, List<Fault>> bySite = new TreeMap<>();
+            for (Fault f : faults) {
+                bySite.computeIfAbsent(f.site, s -> new ArrayList<>()).add(f);
+            }
+            Map<String, Plan> plans = new TreeMap<>();
+            Set<Class<?>> checked = new HashSet<>();
+            bySite.forEach((site, list) -> {
+                list.sort((a, b) -> Long.compare(a.call, b.call));
+                long[] calls = new long[list.size()];
+                List<Class<? extends RuntimeException>> types = new ArrayList<>(list.size());
+                for (int i = 0; i < calls.length; i++) {
+                    calls[i] = list.get(i).call;
+                    Class<? extends RuntimeException> type = exceptionClass(list.get(i).type);
+                    if (checked.add(type)) {
+                        create(type, "test");
+                    }
+                    types.add(type);
+                }
+                plans.put(site, new Plan(calls, types));
+            });
+            plans.forEach((site, plan) -> site(site).plan = plan);
+        }
+
+        public String toString() {
+            return faults.size() + " faults";
+        }
+    }
+
+    static Class<? extends RuntimeException> exceptionClass(String name) {
+        try {
+            return Class.forName(name.indexOf('.') < 0 ? "java.lang." + name : name).asSubclass(RuntimeException.class);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IllegalArgumentException("not an unchecked exception class: " + name, e);
+        }
+    }
+
+    // An instance of the type, through its (String) constructor, or else its no-arg one
+    private static RuntimeException create(Class<? extends RuntimeException> type, String message) {
+        try {
+            return type.getConstructor(String.class).newInstance(message);
+        } catch (NoSuchMethodException e) {
+            try {
+                return type.getConstructor().newInstance();
+            } catch (ReflectiveOperationException e2) {
+                throw new IllegalArgumentException("can't create a " + type.getName(), e2);
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("can't create a " + type.getName(), e);
+        }
+    }
+}
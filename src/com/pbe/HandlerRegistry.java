@@ -0,0 +1,114 @@
+package com.pbe;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Exception handlers picked by exception class, as a table instead of a chain of catch clauses
+// - handlers are registered per exception class with on(); dispatch picks the most specific one, walking up the
+//   class hierarchy, just like catch clauses ordered from most specific to most general
+// - the walk happens once per exception class: the result is cached in a ClassValue, so after warm-up a dispatch is a
+//   single lookup, however many handlers there are (a catch chain or instanceof chain tests them one by one)
+// - registries can be chained, like the nested try in Main.nesttry: what the inner registry has no handler for,
+//   goes to the outer (parent) registry
+// Handlers are to be registered before the first dispatch; registering later throws IllegalStateException.
+final class HandlerRegistry {
+
+    interface Handler<T extends Throwable> {
+        void handle(T t);
+    }
+
+    // Code to run under the registry's handlers, like the body of a try block
+    interface Body {
+        void run() throws Exception;
+    }
+
+    private static final Handler<Throwable> NONE = t -> { };
+
+    private final HandlerRegistry parent;
+    private final Map<Class<?>, Handler<?>> handlers = new HashMap<>();
+    private volatile boolean frozen;
+
+    private final ClassValue<Handler<?>> resolved = new ClassValue<>() {
+        @Override
+        protected Handler<?> computeValue(Class<?> type) {
+            frozen = true;
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                Handler<?> handler = handlers.get(c);
+                if (handler != null) {
+                    return handler;
+                }
+            }
+            return NONE;
+        }
+    };
+
+    HandlerRegistry() {
+        this(null);
+    }
+
+    // A registry handing what it can't handle itself to parent (the 'outer try')
+    HandlerRegistry(HandlerRegistry parent) {
+        this.parent = parent;
+    }
+
+    <T extends Throwable> HandlerRegistry on(Class<T> type, Handler<? super T> handler) {
+        if (frozen) {
+            throw new IllegalStateException("handlers must be registered before the first dispatch");
+        }
+        handlers.put(type, handler);
+        return this;
+    }
+
+    // Hands t to the most specific handler of this registry, or else of its parents; returns false if none had one
+    @SuppressWarnings("unchecked")
+    boolean handle(Throwable t) {
+        for (HandlerRegistry r = this; r != null; r = r.parent) {
+            Handler<Throwable> handler = (Handler<Throwable>) r.resolved.get(t.getClass());
+            if (handler != NONE) {
+                handler.handle(t);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Runs the body; an exception it throws is dispatched to the handlers, and thrown on if none handles it
+    void run(Body body) throws Exception {
+        try {
+            body.run();
+        } catch (Exception e) {
+            if (!handle(e)) {
+                throw e;
+            }
+        }
+    }
+
+    // Demo: Main's nested try example, with registries instead of catch clauses
+    public static void main(String[] args) throws Exception {
+        HandlerRegistry outer = new HandlerRegistry()
+                .on(ArithmeticException.class, e -> System.out.println("Divide by 0 (outer handler): " + e));
+        HandlerRegistry inner = new HandlerRegistry(outer)
+                .on(ArrayIndexOutOfBoundsException.class, e -> System.out.println("Array index out-of-bounds (inner handler): " + e));
+        for (int a = 1; a <= 2; a++) {
+            int value = a;
+            inner.run(() -> nested(value)); // a = 1: '/ by zero', handled by the outer registry; a = 2: out of bounds
+        }
+
+        // Most specific handler wins, whatever the order of registration
+        HandlerRegistry general = new HandlerRegistry()
+                .on(Exception.class, e -> System.out.println("Generic Exception handler: " + e))
+                .on(IndexOutOfBoundsException.class, e -> System.out.println("IndexOutOfBounds handler: " + e));
+        general.run(() -> nested(2));
+        general.run(Main::throwsException);
+    }
+
+    // Body of the nested try in Main.nesttry
+    private static void nested(int a) {
+        if (a == 1)
+            a = a / (a - a);  // causing '/ zero' exception
+        if (a == 2) {
+            int c[] = {1};
+            c[10] = 11; // causing 'out of bounds' exception
+        }
+    }
+}
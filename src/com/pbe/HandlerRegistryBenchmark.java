@@ -0,0 +1,275 @@
+package com.pbe;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+// Benchmark of HandlerRegistry dispatch against an instanceof chain (which is what a chain of catch clauses amounts to)
+// There are 50 exception types, E0 - E49, and a handler for each. A chain checks them in order, so the cost of
+// dispatching grows with the position of the matching handler; the registry resolves each class once and then looks it up.
+// Measured with 2, 5, 10, 25 and 50 handlers, for exceptions spread over all of them, plus Class.isInstance() over an array
+// of the types (a chain built at runtime). For n handlers the registry has n handlers registered and the isInstance array
+// holds n types; the instanceof chain is written out for 50 types, but stops at the first match, so with exceptions of
+// the first n types only its first n tests run. Every variant does the same work per dispatch: it finds the handler
+// and counts the exception in handled[]. The exceptions are preallocated, so only the dispatch is measured.
+public class HandlerRegistryBenchmark {
+
+    static final int[] HANDLERS = {2, 5, 10, 25, 50};
+    static final int OPS = 1_000_000;
+
+    static final class E0 extends RuntimeException { E0() { super(null, null, false, false); } }
+    static final class E1 extends RuntimeException { E1() { super(null, null, false, false); } }
+    static final class E2 extends RuntimeException { E2() { super(null, null, false, false); } }
+    static final class E3 extends RuntimeException { E3() { super(null, null, false, false); } }
+    static final class E4 extends RuntimeException { E4() { super(null, null, false, false); } }
+    static final class E5 extends RuntimeException { E5() { super(null, null, false, false); } }
+    static final class E6 extends RuntimeException { E6() { super(null, null, false, false); } }
+    static final class E7 extends RuntimeException { E7() { super(null, null, false, false); } }
+    static final class E8 extends RuntimeException { E8() { super(null, null, false, false); } }
+    static final class E9 extends RuntimeException { E9() { super(null, null, false, false); } }
+    static final class E10 extends RuntimeException { E10() { super(null, null, false, false); } }
+    static final class E11 extends RuntimeException { E11() { super(null, null, false, false); } }
+    static final class E12 extends RuntimeException { E12() { super(null, null, false, false); } }
+    static final class E13 extends RuntimeException { E13() { super(null, null, false, false); } }
+    static final class E14 extends RuntimeException { E14() { super(null, null, false, false); } }
+    static final class E15 extends RuntimeException { E15() { super(null, null, false, false); } }
+    static final class E16 extends RuntimeException { E16() { super(null, null, false, false); } }
+    static final class E17 extends RuntimeException { E17() { super(null, null, false, false); } }
+    static final class E18 extends RuntimeException { E18() { super(null, null, false, false); } }
+    static final class E19 extends RuntimeException { E19() { super(null, null, false, false); } }
+    static final class E20 extends RuntimeException { E20() { super(null, null, false, false); } }
+    static final class E21 extends RuntimeException { E21() { super(null, null, false, false); } }
+    static final class E22 extends RuntimeException { E22() { super(null, null, false, false); } }
+    static final class E23 extends RuntimeException { E23() { super(null, null, false, false); } }
+    static final class E24 extends RuntimeException { E24() { super(null, null, false, false); } }
+    static final class E25 extends RuntimeException { E25() { super(null, null, false, false); } }
+    static final class E26 extends RuntimeException { E26() { super(null, null, false, false); } }
+    static final class E27 extends RuntimeException { E27() { super(null, null, false, false); } }
+    static final class E28 extends RuntimeException { E28() { super(null, null, false, false); } }
+    static final class E29 extends RuntimeException { E29() { super(null, null, false, false); } }
+    static final class E30 extends RuntimeException { E30() { super(null, null, false, false); } }
+    static final class E31 extends RuntimeException { E31() { super(null, null, false, false); } }
+    static final class E32 extends RuntimeException { E32() { super(null, null, false, false); } }
+    static final class E33 extends RuntimeException { E33() { super(null, null, false, false); } }
+    static final class E34 extends RuntimeException { E34() { super(null, null, false, false); } }
+    static final class E35 extends RuntimeException { E35() { super(null, null, false, false); } }
+    static final class E36 extends RuntimeException { E36() { super(null, null, false, false); } }
+    static final class E37 extends RuntimeException { E37() { super(null, null, false, false); } }
+    static final class E38 extends RuntimeException { E38() { super(null, null, false, false); } }
+    static final class E39 extends RuntimeException { E39() { super(null, null, false, false); } }
+    static final class E40 extends RuntimeException { E40() { super(null, null, false, false); } }
+    static final class E41 extends RuntimeException { E41() { super(null, null, false, false); } }
+    static final class E42 extends RuntimeException { E42() { super(null, null, false, false); } }
+    static final class E43 extends RuntimeException { E43() { super(null, null, false, false); } }
+    static final class E44 extends RuntimeException { E44() { super(null, null, false, false); } }
+    static final class E45 extends RuntimeException { E45() { super(null, null, false, false); } }
+    static final class E46 extends RuntimeException { E46() { super(null, null, false, false); } }
+    static final class E47 extends RuntimeException { E47() { super(null, null, false, false); } }
+    static final class E48 extends RuntimeException { E48() { super(null, null, false, false); } }
+    static final class E49 extends RuntimeException { E49() { super(null, null, false, false); } }
+
+    static final List<Supplier<RuntimeException>> TYPES = List.of(
+            E0::new,
+            E1::new,
+            E2::new,
+            E3::new,
+            E4::new,
+            E5::new,
+            E6::new,
+            E7::new,
+            E8::new,
+            E9::new,
+            E10::new,
+            E11::new,
+            E12::new,
+            E13::new,
+            E14::new,
+            E15::new,
+            E16::new,
+            E17::new,
+            E18::new,
+            E19::new,
+            E20::new,
+            E21::new,
+            E22::new,
+            E23::new,
+            E24::new,
+            E25::new,
+            E26::new,
+            E27::new,
+            E28::new,
+            E29::new,
+            E30::new,
+            E31::new,
+            E32::new,
+            E33::new,
+            E34::new,
+            E35::new,
+            E36::new,
+            E37::new,
+            E38::new,
+            E39::new,
+            E40::new,
+            E41::new,
+            E42::new,
+            E43::new,
+            E44::new,
+            E45::new,
+            E46::new,
+            E47::new,
+            E48::new,
+            E49::new
+    );
+
+    static final int[] handled = new int[TYPES.size()];
+
+    public static void main(String[] args) {
+        Class<?>[] allTypes = new Class<?>[TYPES.size()];
+        for (int i = 0; i < allTypes.length; i++) {
+            allTypes[i] = TYPES.get(i).get().getClass();
+        }
+
+        for (int n : HANDLERS) {
+            Class<?>[] types = Arrays.copyOf(allTypes, n);
+            HandlerRegistry registry = new HandlerRegistry();
+            for (int i = 0; i < n; i++) {
+                int index = i;
+                registerHandler(registry, types[i], t -> handled[index]++);
+            }
+            // exceptions spread over the n types, so on average the chain tests n/2 types (all n for the last one)
+            RuntimeException[] exceptions = new RuntimeException[1024];
+            for (int i = 0; i < exceptions.length; i++) {
+                exceptions[i] = TYPES.get(i % n).get();
+            }
+            int mask = exceptions.length - 1;
+            Bench.run("instanceof chain, " + n + " handlers", OPS, i -> count(instanceofChain(exceptions[i & mask])));
+            Bench.run("isInstance loop,  " + n + " handlers", OPS, i -> count(isInstanceLoop(types, exceptions[i & mask])));
+            Bench.run("HandlerRegistry,  " + n + " handlers", OPS, i -> registry.handle(exceptions[i & mask]) ? 1 : 0);
+            System.out.println();
+        }
+    }
+
+    // The handler's work for the chains, the same as the registered handlers do
+    static int count(int index) {
+        handled[index]++;
+        return 1;
+    }
+
+    static void registerHandler(HandlerRegistry registry, Class<?> type, HandlerRegistry.Handler<Throwable> handler) {
+        registry.on(type.asSubclass(Throwable.class), handler);
+    }
+
+    static int isInstanceLoop(Class<?>[] types, Throwable e) {
+        for (int i = 0; i < types.length; i++) {
+            if (types[i].isInstance(e)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static int instanceofChain(Throwable e) {
+        if (e instanceof E0) {
+            return 0;
+        } else if (e instanceof E1) {
+            return 1;
+        } else if (e instanceof E2) {
+            return 2;
+        } else if (e instanceof E3) {
+            return 3;
+        } else if (e instanceof E4) {
+            return 4;
+        } else if (e instanceof E5) {
+            return 5;
+        } else if (e instanceof E6) {
+            return 6;
+        } else if (e instanceof E7) {
+            return 7;
+        } else if (e instanceof E8) {
+            return 8;
+        } else if (e instanceof E9) {
+            return 9;
+        } else if (e instanceof E10) {
+            return 10;
+        } else if (e instanceof E11) {
+            return 11;
+        } else if (e instanceof E12) {
+            return 12;
+        } else if (e instanceof E13) {
+            return 13;
+        } else if (e instanceof E14) {
+            return 14;
+        } else if (e instanceof E15) {
+            return 15;
+        } else if (e instanceof E16) {
+            return 16;
+        } else if (e instanceof E17) {
+            return 17;
+        } else if (e instanceof E18) {
+            return 18;
+        } else if (e instanceof E19) {
+            return 19;
+        } else if (e instanceof E20) {
+            return 20;
+        } else if (e instanceof E21) {
+            return 21;
+        } else if (e instanceof E22) {
+            return 22;
+        } else if (e instanceof E23) {
+            return 23;
+        } else if (e instanceof E24) {
+            return 24;
+        } else if (e instanceof E25) {
+            return 25;
+        } else if (e instanceof E26) {
+            return 26;
+        } else if (e instanceof E27) {
+            return 27;
+        } else if (e instanceof E28) {
+            return 28;
+        } else if (e instanceof E29) {
+            return 29;
+        } else if (e instanceof E30) {
+            return 30;
+        } else if (e instanceof E31) {
+            return 31;
+        } else if (e instanceof E32) {
+            return 32;
+        } else if (e instanceof E33) {
+            return 33;
+        } else if (e instanceof E34) {
+            return 34;
+        } else if (e instanceof E35) {
+            return 35;
+        } else if (e instanceof E36) {
+            return 36;
+        } else if (e instanceof E37) {
+            return 37;
+        } else if (e instanceof E38) {
+            return 38;
+        } else if (e instanceof E39) {
+            return 39;
+        } else if (e instanceof E40) {
+            return 40;
+        } else if (e instanceof E41) {
+            return 41;
+        } else if (e instanceof E42) {
+            return 42;
+        } else if (e instanceof E43) {
+            return 43;
+        } else if (e instanceof E44) {
+            return 44;
+        } else if (e instanceof E45) {
+            return 45;
+        } else if (e instanceof E46) {
+            return 46;
+        } else if (e instanceof E47) {
+            return 47;
+        } else if (e instanceof E48) {
+            return 48;
+        } else if (e instanceof E49) {
+            return 49;
+        }
+        return -1;
+    }
+}
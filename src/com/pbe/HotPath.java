@@ -0,0 +1,13 @@
+package com.pbe;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Marks a method (or all methods of a class) as being on a hot path: called so often that exceptions must not be
+// part of its normal flow. ExceptionFlowChecker applies stricter rules to it, and reports its findings as errors.
+@Retention(RetentionPolicy.CLASS)
+@Target({ElementType.METHOD, ElementType.CONSTRUCTOR, ElementType.TYPE})
+public @interface HotPath {
+}
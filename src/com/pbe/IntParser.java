@@ -0,0 +1,142 @@
+package com.pbe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+// Reusable, buffered parser of whitespace separated integers, as a fast replacement for Scanner.nextInt()
+// - parses straight from the bytes in its buffer: no Strings, no regular expressions, no garbage per token
+// - a bad token is reported through the returned status code instead of an InputMismatchException,
+//   and is skipped, so the next call continues with the next token
+// - create one per input and keep using it, as Main.getInt does with its shared STDIN parser: a new parser (or Scanner)
+//   per call would lose whatever the previous one had read ahead into its buffer
+//
+// Usage:
+//   IntParser p = new IntParser(System.in);
+//   int status;
+//   while ((status = p.next()) != IntParser.EOF) {
+//       if (status == IntParser.OK) use(p.value());
+//   }
+//
+// Like Scanner, it doesn't throw on an I/O error: the input is treated as ended and the exception is available from ioException()
+// Only ASCII input is supported (digits, '+', '-' and whitespace up to ' ').
+final class IntParser {
+
+    // Status codes returned by next()
+    static final int OK = 0;
+    static final int MALFORMED = 1; // token contains something other than an optional sign followed by digits
+    static final int OVERFLOW = 2;  // token is a valid number, but outside the int range
+    static final int EOF = 3;       // no more tokens
+
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final ReadableByteChannel in;
+    private final ByteBuffer buffer;
+    private final byte[] bytes;
+    private int pos;
+    private int limit;
+    private int value;
+    private IOException ioException;
+
+    IntParser(InputStream in) {
+        this(Channels.newChannel(in));
+    }
+
+    IntParser(ReadableByteChannel in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    IntParser(ReadableByteChannel in, int bufferSize) {
+        this.in = in;
+        this.bytes = new byte[bufferSize];
+        this.buffer = ByteBuffer.wrap(bytes);
+    }
+
+    // Reads the next token; returns OK (value() then holds the number), MALFORMED, OVERFLOW or EOF
+    int next() {
+        int b = read();
+        while (b >= 0 && b <= ' ') { // skip whitespace
+            b = read();
+        }
+        if (b < 0) {
+            return EOF;
+        }
+
+        boolean negative = false;
+        if (b == '-' || b == '+') {
+            negative = b == '-';
+            b = read();
+        }
+        // Accumulate as a negative number, since Integer.MIN_VALUE has no positive counterpart
+        int result = 0;
+        int digits = 0;
+        int status = OK;
+        while (b > ' ') {
+            int digit = b - '0';
+            if (digit < 0 || digit > 9) {
+                status = MALFORMED;
+            } else if (status == OK) {
+                if (result < Integer.MIN_VALUE / 10 || result * 10 < Integer.MIN_VALUE + digit) {
+                    status = OVERFLOW;
+                } else {
+                    result = result * 10 - digit;
+                }
+                digits++;
+            }
+            b = read();
+        }
+        if (status == OK && digits == 0) {
+            return MALFORMED; // only a sign
+        }
+        if (status != OK) {
+            return status;
+        }
+        if (!negative) {
+            if (result == Integer.MIN_VALUE) {
+                return OVERFLOW;
+            }
+            result = -result;
+        }
+        value = result;
+        return OK;
+    }
+
+    // The number read by the last call of next() that returned OK
+    int value() {
+        return value;
+    }
+
+    // The IOException that ended the input, or null if there was none
+    IOException ioException() {
+        return ioException;
+    }
+
+    // Returns the next byte as 0-255, or -1 at the end of the input
+    private int read() {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return bytes[pos++] & 0xFF;
+    }
+
+    private boolean fill() {
+        try {
+            int n;
+            do {
+                buffer.clear();
+                n = in.read(buffer);
+            } while (n == 0);
+            if (n < 0) {
+                return false;
+            }
+            pos = 0;
+            limit = n;
+            return true;
+        } catch (IOException e) {
+            ioException = e;
+            return false;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.pbe;
+
+import java.io.ByteArrayInputStream;
+import java.util.InputMismatchException;
+import java.util.Scanner;
+
+// Benchmark of IntParser against the Scanner based ways of reading integers used in Main
+// Parses an in-memory input of COUNT tokens, of which a given share is malformed, and reports integers/second:
+// - one Scanner, LBYL: hasNextInt() before nextInt()
+// - one Scanner, EAFP: nextInt(), catching InputMismatchException (the approach of getInt/getIntEAFP)
+// - a new Scanner per token, as getIntLBYL/getIntEAFP do
+// - IntParser
+//
+// Start with argument 'stdin' to measure IntParser on piped input instead, e.g.:
+//   seq 1 10000000 | java com.pbe.IntParserBenchmark stdin
+public class IntParserBenchmark {
+
+    static final double[] FAILURE_RATES = {0.0, 0.1, 0.5};
+    static final int COUNT = 50_000;
+    static final int PASSES = 10; // parses of the whole input per measured round
+
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("stdin")) {
+            parseStdin();
+            return;
+        }
+        for (double rate : FAILURE_RATES) {
+            boolean[] bad = Bench.failures(COUNT, rate);
+            StringBuilder sb = new StringBuilder();
+            String[] tokens = new String[COUNT];
+            for (int i = 0; i < COUNT; i++) {
+                tokens[i] = bad[i] ? "1x" + i : Integer.toString(i * 31 - 1_000_000);
+                sb.append(tokens[i]).append(i % 10 == 9 ? '\n' : ' ');
+            }
+            byte[] input = sb.toString().getBytes();
+            int pct = (int) (rate * 100);
+
+            report("Scanner LBYL         " + pct + "% bad", Bench.time(PASSES, i -> scannerLBYL(input)));
+            report("Scanner EAFP         " + pct + "% bad", Bench.time(PASSES, i -> scannerEAFP(input)));
+            int perTokenOps = COUNT / 10; // a Scanner per token is slow, measure a part of the input and scale up
+            report("Scanner per token    " + pct + "% bad", Bench.time(perTokenOps, i -> Main.getIntLBYL(new Scanner(tokens[i]))) * COUNT);
+            report("IntParser            " + pct + "% bad", Bench.time(PASSES, i -> intParser(input)));
+            System.out.println();
+        }
+    }
+
+    static int scannerLBYL(byte[] input) {
+        Scanner s = new Scanner(new ByteArrayInputStream(input));
+        int sum = 0;
+        while (s.hasNext()) {
+            if (s.hasNextInt()) {
+                sum += s.nextInt();
+            } else {
+                s.next();
+            }
+        }
+        return sum;
+    }
+
+    static int scannerEAFP(byte[] input) {
+        Scanner s = new Scanner(new ByteArrayInputStream(input));
+        int sum = 0;
+        while (s.hasNext()) {
+            try {
+                sum += s.nextInt();
+            } catch (InputMismatchException e) {
+                s.next(); // skip the bad token
+            }
+        }
+        return sum;
+    }
+
+    static int intParser(byte[] input) {
+        IntParser p = new IntParser(new ByteArrayInputStream(input));
+        int sum = 0;
+        int status;
+        while ((status = p.next()) != IntParser.EOF) {
+            if (status == IntParser.OK) {
+                sum += p.value();
+            }
+        }
+        return sum;
+    }
+
+    // Converts the ns for parsing the whole input into integers/second
+    static void report(String label, double nsPerInput) {
+        System.out.printf("%-40s %,15.0f ints/s%n", label, COUNT / (nsPerInput / 1e9));
+    }
+
+    static void parseStdin() {
+        IntParser p = new IntParser(System.in);
+        long count = 0;
+        long bad = 0;
+        long sum = 0;
+        long start = System.nanoTime();
+        int status;
+        while ((status = p.next()) != IntParser.EOF) {
+            if (status == IntParser.OK) {
+                sum += p.value();
+                count++;
+            } else {
+                bad++;
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%,d integers, %,d bad tokens in %.2f s: %,.0f ints/s (sum %d)%n", count, bad, seconds, (count + bad) / seconds, sum);
+    }
+}
@@ -0,0 +1,60 @@
+package com.pbe;
+
+import java.util.function.IntFunction;
+
+// Int-specialised version of Result, that never allocates: a result is packed into a primitive long
+// - the lower 32 bits hold the int value (on success) or an int error payload (on failure, e.g. MyException's num)
+// - bit 32 is set for a failure
+// Java has no value classes (yet), so an object per result can't be avoided any other way.
+// The price is that the type system doesn't tell an IntResult long from any other long, so keep the names clear.
+public final class IntResult {
+
+    private static final long ERROR_BIT = 1L << 32;
+
+    private IntResult() {
+    }
+
+    static long ok(int value) {
+        return value & 0xFFFFFFFFL;
+    }
+
+    static long error(int payload) {
+        return ERROR_BIT | (payload & 0xFFFFFFFFL);
+    }
+
+    static boolean isOk(long result) {
+        return (result & ERROR_BIT) == 0;
+    }
+
+    // The value on success, or the error payload on failure
+    static int value(long result) {
+        return (int) result;
+    }
+
+    static int orElse(long result, int other) {
+        return isOk(result) ? (int) result : other;
+    }
+
+    // Adapter to exception style: returns the value, or throws the exception made from the error payload
+    // E.g. IntResult.orElseThrow(r, MyException::of)
+    static <X extends Exception> int orElseThrow(long result, IntFunction<? extends X> toException) throws X {
+        if (isOk(result)) {
+            return (int) result;
+        }
+        throw toException.apply((int) result);
+    }
+
+    // Adapter from exception style, for callers still catching MyException
+    static long of(MyException e) {
+        return error(e.getNum());
+    }
+
+    // Boxed view, for code that works with the generic Result type
+    static Result<Integer, Integer> toResult(long result) {
+        return isOk(result) ? Result.ok((int) result) : Result.error((int) result);
+    }
+
+    static String toString(long result) {
+        return isOk(result) ? "Ok[" + (int) result + "]" : "Error[" + (int) result + "]";
+    }
+}
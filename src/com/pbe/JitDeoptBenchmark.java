@@ -0,0 +1,188 @@
+package com.pbe;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedMethod;
+import jdk.jfr.consumer.RecordingStream;
+
+// What the JIT does when a rarely taken exception path suddenly becomes hot, for the ways to leave a try/finally
+// (Main.methodA/B/C) and for the nested try of Main.nesttry. The paths, without console output:
+// - throwing:  try { ... } finally { ... }, where a failing call throws out of the try (methodA)
+// - returning: try { return ... } finally { ... }, where a failing call throws instead of returning (methodB)
+// - normal:    try { ... } finally { ... }, completing normally, where a failing call throws (methodC)
+// - nested:    the nested try of nesttry: a failing call causes '/ zero' (caught by the outer try) or an out of
+//              bounds index (caught by the nested try), alternately
+// Each path runs through phases with a different share of failing calls. The first phase never fails, so the JIT compiles
+// the path without its exception branch (an 'uncommon trap' in its place); when failures start, hitting that trap throws
+// the compiled code away (a deoptimization) and the method is compiled again.
+// Reported per phase: ns per call, and the JFR jdk.Deoptimization events for methods of this class, with their reasons.
+// Every path runs in a JVM of its own, so one path's compilations don't affect the next.
+// Note the normal and nested paths getting cheap once failures are frequent: their exceptions are thrown by the JVM itself
+// ('/ zero', out of bounds), and once hot those are replaced by a preallocated exception without stack trace
+// (-XX:+OmitStackTraceInFastThrow, see LbylEafpBenchmark). The 'new RuntimeException' of the other two never is.
+public class JitDeoptBenchmark {
+
+    static final double[] RATES = {0, 0.0001, 0.01, 0.1, 0.5, 0};
+    static final int PHASE_OPS = 3_000_000;
+    static final String[] PATHS = {"throwing", "returning", "normal", "nested"};
+
+    static final boolean[][] FAILURES = new boolean[RATES.length][];
+    static int finallyRuns;
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length > 0) {
+            run(args[0]);
+            return;
+        }
+        for (String path : PATHS) {
+            Bench.fork(JitDeoptBenchmark.class, List.of(), path);
+        }
+    }
+
+    static void run(String path) throws InterruptedException {
+        for (int p = 0; p < RATES.length; p++) {
+            FAILURES[p] = Bench.failures(1 << 16, RATES[p]);
+        }
+        List<RecordedEvent> deopts = new ArrayList<>();
+        Instant[] phaseStart = new Instant[RATES.length + 1];
+        double[] nsPerOp = new double[RATES.length];
+        try (RecordingStream stream = new RecordingStream()) {
+            stream.enable("jdk.Deoptimization");
+            stream.onEvent("jdk.Deoptimization", event -> {
+                synchronized (deopts) {
+                    deopts.add(event);
+                }
+            });
+            stream.startAsync();
+            for (int p = 0; p < RATES.length; p++) {
+                phaseStart[p] = Instant.now();
+                nsPerOp[p] = phase(path, FAILURES[p]);
+            }
+            phaseStart[RATES.length] = Instant.now();
+            Thread.sleep(1500); // events are delivered in batches, about once a second
+        }
+
+        System.out.println(path);
+        System.out.printf("  %8s %10s %7s  %s%n", "failing", "ns/call", "deopts", "reasons");
+        for (int p = 0; p < RATES.length; p++) {
+            Map<String, Integer> reasons = new TreeMap<>();
+            int count = 0;
+            synchronized (deopts) {
+                for (RecordedEvent event : deopts) {
+                    RecordedMethod method = event.getValue("method");
+                    Instant time = event.getStartTime();
+                    if (method != null && method.getType().getName().equals(JitDeoptBenchmark.class.getName())
+                            && !time.isBefore(phaseStart[p]) && time.isBefore(phaseStart[p + 1])) {
+                        count++;
+                        reasons.merge(method.getName() + ": " + event.getString("reason"), 1, Integer::sum);
+                    }
+                }
+            }
+            System.out.printf("  %7.2f%% %10.1f %7d  %s%n", RATES[p] * 100, nsPerOp[p], count, reasons);
+        }
+    }
+
+    // One phase: PHASE_OPS calls of the path, failing where fail says so; returns ns per call
+    static double phase(String path, boolean[] fail) {
+        int mask = fail.length - 1;
+        long sum = 0;
+        long start = System.nanoTime();
+        switch (path) {
+            case "throwing":
+                for (int i = 0; i < PHASE_OPS; i++) {
+                    try {
+                        throwing(fail[i & mask]);
+                        sum++;
+                    } catch (RuntimeException e) {
+                        sum += 2;
+                    }
+                }
+                break;
+            case "returning":
+                for (int i = 0; i < PHASE_OPS; i++) {
+                    try {
+                        sum += returning(i, fail[i & mask]);
+                    } catch (RuntimeException e) {
+                        sum += 2;
+                    }
+                }
+                break;
+            case "normal":
+                for (int i = 0; i < PHASE_OPS; i++) {
+                    try {
+                        normal(fail[i & mask]);
+                        sum++;
+                    } catch (RuntimeException e) {
+                        sum += 2;
+                    }
+                }
+                break;
+            default:
+                for (int i = 0; i < PHASE_OPS; i++) {
+                    sum += nested(fail[i & mask] ? 1 + (i & 1) : 0);
+                }
+        }
+        long elapsed = System.nanoTime() - start;
+        Bench.sink = sum + finallyRuns;
+        return (double) elapsed / PHASE_OPS;
+    }
+
+    // methodA: leaves the try by throwing (when failing), running the finally on its way out
+    static void throwing(boolean fail) {
+        try {
+            if (fail) {
+                throw new RuntimeException("demo");
+            }
+        } finally {
+            finallyRuns++;
+        }
+    }
+
+    // methodB: leaves the try by returning, or by throwing when failing
+    static int returning(int i, boolean fail) {
+        try {
+            if (fail) {
+                throw new RuntimeException("demo");
+            }
+            return i & 1;
+        } finally {
+            finallyRuns++;
+        }
+    }
+
+    // methodC: completes the try normally, unless failing
+    static void normal(boolean fail) {
+        try {
+            finallyRuns += fail ? 1 / (finallyRuns - finallyRuns) : 1; // '/ zero' when failing
+        } finally {
+            finallyRuns++;
+        }
+    }
+
+    // Main's nested try: the outer try (in Main.main) catches '/ zero', the nested try in nesttry the out of bounds index
+    static int nested(int a) {
+        try {
+            nesttry(a);
+            return 0;
+        } catch (ArithmeticException e) {
+            return 1;
+        }
+    }
+
+    static void nesttry(int a) {
+        try {
+            if (a == 1)
+                a = a / (a - a);  // causing '/ zero' exception
+            if (a == 2) {
+                int c[] = {1};
+                c[10] = 11; // causing 'out of bounds' exception
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            finallyRuns++;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.pbe;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Concurrent latency histogram in the style of HdrHistogram, kept small and local
+// Values (e.g. ns) are counted in log-linear buckets: values below 2^PRECISION_BITS get a bucket each,
+// above that every power of two is split into 2^(PRECISION_BITS-1) equal buckets, so the relative error stays below 1/64.
+// The whole long range fits in a few thousand counters, and recording is one AtomicLongArray increment, safe from any thread.
+final class LatencyHistogram {
+
+    static final int PRECISION_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << PRECISION_BITS;   // 128
+    private static final int HALF = SUB_BUCKETS >> 1;              // 64
+    private static final int BUCKETS = SUB_BUCKETS + (63 - PRECISION_BITS) * HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    void record(long value) {
+        counts.incrementAndGet(indexOf(Math.max(0, value)));
+    }
+
+    long count() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    // Value at the given percentile (0 - 100): the highest value that falls into the same bucket
+    long percentile(double percentile) {
+        long total = count();
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return highestValueOf(i);
+            }
+        }
+        return highestValueOf(BUCKETS - 1);
+    }
+
+    long max() {
+        for (int i = BUCKETS - 1; i >= 0; i--) {
+            if (counts.get(i) > 0) {
+                return highestValueOf(i);
+            }
+        }
+        return 0;
+    }
+
+    // One line summary, values divided by unitDivisor (e.g. 1000 to show ns as us)
+    String summary(long unitDivisor, String unit) {
+        return String.format("p50 %,d %s  p90 %,d %s  p99 %,d %s  p99.9 %,d %s  max %,d %s",
+                percentile(50) / unitDivisor, unit, percentile(90) / unitDivisor, unit, percentile(99) / unitDivisor, unit,
+                percentile(99.9) / unitDivisor, unit, max() / unitDivisor, unit);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = (63 - Long.numberOfLeadingZeros(value)) - (PRECISION_BITS - 1); // >= 1
+        int top = (int) (value >>> exponent);                                        // HALF .. SUB_BUCKETS - 1
+        return SUB_BUCKETS + (exponent - 1) * HALF + (top - HALF);
+    }
+
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = (index - SUB_BUCKETS) / HALF + 1;
+        long top = (index - SUB_BUCKETS) % HALF + HALF;
+        return ((top + 1) << exponent) - 1;
+    }
+}
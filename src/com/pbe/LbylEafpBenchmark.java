@@ -0,0 +1,57 @@
+package com.pbe;
+
+import java.util.List;
+import java.util.Scanner;
+
+// Benchmark comparing LBYL (check first) with EAFP (catch the exception) at failure rates from 0% to 100%
+// Compares Main.divideLBYL/divideEAFP and Main.getIntLBYL/getIntEAFP, the latter fed from in-memory input instead of System.in
+// Reports ns/op and allocated bytes/op (see Bench)
+//
+// Started without arguments, the benchmark runs twice, each in its own JVM:
+// 1. with default flags - HotSpot then replaces frequently thrown implicit exceptions (such as '/ by zero') with a
+//    preallocated instance without stack trace ('OmitStackTraceInFastThrow')
+// 2. with -XX:-OmitStackTraceInFastThrow - every implicit exception gets a new object and a full stack trace
+// Start with argument 'run' to only run the measurements in the current JVM.
+public class LbylEafpBenchmark {
+
+    static final double[] FAILURE_RATES = {0.0, 0.01, 0.1, 0.5, 1.0};
+    static final int DIVIDE_OPS = 200_000;
+    static final int GETINT_OPS = 5_000;
+
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("run")) {
+            runAll();
+            return;
+        }
+        System.out.println("=== Default JVM flags (OmitStackTraceInFastThrow enabled)");
+        Bench.fork(LbylEafpBenchmark.class, List.of(), "run");
+        System.out.println("=== -XX:-OmitStackTraceInFastThrow");
+        Bench.fork(LbylEafpBenchmark.class, List.of("-XX:-OmitStackTraceInFastThrow"), "run");
+    }
+
+    static void runAll() {
+        for (double rate : FAILURE_RATES) {
+            int pct = (int) (rate * 100);
+
+            // divisors: 0 for a failing op, otherwise a non-zero value
+            boolean[] fail = Bench.failures(DIVIDE_OPS, rate);
+            int[] y = new int[DIVIDE_OPS];
+            for (int i = 0; i < y.length; i++) {
+                y[i] = fail[i] ? 0 : (i % 7) + 1;
+            }
+            Bench.run("divideLBYL  " + pct + "% failing", DIVIDE_OPS, i -> Main.divideLBYL(i, y[i]));
+            Bench.run("divideEAFP  " + pct + "% failing", DIVIDE_OPS, i -> Main.divideEAFP(i, y[i]));
+
+            // input tokens: a non-numeric token for a failing op, otherwise a valid integer
+            boolean[] badToken = Bench.failures(GETINT_OPS, rate);
+            String[] tokens = new String[GETINT_OPS];
+            for (int i = 0; i < tokens.length; i++) {
+                tokens[i] = badToken[i] ? "x" + i : Integer.toString(i);
+            }
+            // Both methods create a new Scanner per call, so the benchmark does the same
+            Bench.run("getIntLBYL  " + pct + "% failing", GETINT_OPS, i -> Main.getIntLBYL(new Scanner(tokens[i])));
+            Bench.run("getIntEAFP  " + pct + "% failing", GETINT_OPS, i -> Main.getIntEAFP(new Scanner(tokens[i])));
+            System.out.println();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.pbe;
 
 import jdk.swing.interop.SwingInterOpUtils;
 
+import java.time.Duration;
 import java.util.InputMismatchException;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
@@ -135,6 +136,23 @@ public class Main {
 
     static int val = 3;
 
+    // Parser over System.in shared by all getInt() calls, so input read ahead into its buffer isn't lost between calls
+    static final IntParser STDIN = new IntParser(System.in);
+
+    // Retry rule for getInt(): a bad token is retried up to INPUT_ATTEMPTS attempts in total, without pause (there's a person typing)
+    static final int INPUT_ATTEMPTS = 5;
+    static final Resilience INPUT_RETRY = new Resilience().retry(InputMismatchException.class, INPUT_ATTEMPTS, Duration.ZERO, Duration.ZERO);
+
+    // Counts the exceptions caught (and rethrown) in throwtest(), see ExceptionMetrics
+    static final ExceptionMetrics.Site THROWTEST_SITE = ExceptionMetrics.site("Main.throwtest");
+
+    // Precondition/invariant checks for this package, see the assert example
+    static final Checks CHECKS = Checks.of(Main.class);
+
+    // Sites where faults can be injected on top of the hard-coded ones, see FaultInjector
+    static final FaultInjector.Site NESTTRY_FAULT = FaultInjector.site("Main.nesttry");
+    static final FaultInjector.Site GETNUM_FAULT = FaultInjector.site("Main.getnum");
+
     public static void main(String[] args) {
 
         // Some common scenarios of Java exceptions:
@@ -157,6 +175,7 @@ public class Main {
         int y = 0;
         System.out.println(divideLBYL(x, y));
         System.out.println(divideEAFP(x, y));
+        System.out.println(IntResult.toString(divideResult(x, y)));
         System.out.println();
 
         // Example of a divide by zero error, not being handled
@@ -180,7 +199,7 @@ public class Main {
             int b = 10 / 0; // will cause a 'ArithmeticException: / by zero' error
             System.out.println("This line will not be executed."); // if an error occurs in the try block, the rest of the block code is not executed
         } catch (ArithmeticException e) {
-            System.out.println("Exception: " + e); // this will display the string containing a description of the exception
+            AsyncLogger.log("Exception: ", e); // this will display the string containing a description of the exception
             System.out.println("Division by zero."); // alternatively: use an own description
         }
         System.out.println("After try/catch \n");
@@ -214,9 +233,9 @@ public class Main {
             int c[] = {1, 2, 3};
             c[10] = 11; // causing an 'out of bounds' exception as c[] consists of only 3 elements
         } catch (ArithmeticException e) {
-            System.out.println("Divide by 0: " + e);
+            AsyncLogger.log("Divide by 0: ", e);
         } catch (ArrayIndexOutOfBoundsException e) {
-            System.out.println("Array index oob: " + e); // program will only get to this point if args are provided (read: if a > 0)
+            AsyncLogger.log("Array index oob: ", e); // program will only get to this point if args are provided (read: if a > 0)
         }
         System.out.println("After try/catch blocks \n");
 
@@ -274,12 +293,12 @@ public class Main {
                     c[10] = 11; // causing 'out of bounds' exception
                 }
             } catch (ArrayIndexOutOfBoundsException e) { // first catch in nested try
-                System.out.println("Array index out-of-bounds: " + e);
+                AsyncLogger.log("Array index out-of-bounds: ", e);
             } catch (ArithmeticException e) { // second catch in nested try
-                System.out.println("Divide by 0: " + e);
+                AsyncLogger.log("Divide by 0: ", e);
             }
         } catch (ArithmeticException e) { // catch in main try
-            System.out.println("Divide by 0: " + e);
+            AsyncLogger.log("Divide by 0: ", e);
         }
         System.out.println();
 
@@ -294,7 +313,7 @@ public class Main {
             int b = 1 / a; // causing '/ zero' exception if a = 0
             nesttry(a);
         } catch (ArithmeticException e) {
-            System.out.println("Divide by 0: " + e);
+            AsyncLogger.log("Divide by 0: ", e);
         }
 
         // Example of throwing own exception (throw)
@@ -341,7 +360,7 @@ public class Main {
             methodA(); // throws and catches an exception: prematurely breaking out of try and executes finally on it's way out
             throw new RuntimeException("demo");
         } catch (Exception e) {
-            System.out.println("Exception caught: " + e);
+            AsyncLogger.log("Exception caught: ", e);
         }
         methodB(); // exits try block via a return statement and executes finally on it's way out
         methodC(); // executes try/catch block without issues and executes finally on it's way out
@@ -357,28 +376,88 @@ public class Main {
         // Chained exceptions
         // It's possible to associate one exception with another, with the second exception describing the cause of the first exception.
         // This is called chained exceptions.
-        // T.B.D.
+        // The cause is set with the constructors Throwable(Throwable cause) and Throwable(String msg, Throwable cause),
+        // or afterwards with initCause(Throwable cause) (only once, and only if no cause was given to the constructor).
+        // getCause() returns the cause, or null if there's none. A cause can have a cause itself, and so on: a cause chain.
+        // This is typically used when a method catches a low level exception and throws a higher level one instead,
+        // without losing the information of what actually went wrong.
+        // Beware of very deep chains (every rethrow wrapping the exception once more): each level keeps its own exception
+        // and stack trace in memory. See CauseChains for walking and analysing chains without recursion and with bounded memory.
+        System.out.println("Chained exceptions");
+        System.out.println("-------------------------------------------");
+        try {
+            chaintest();
+        } catch (IllegalStateException e) {
+            System.out.println("Caught: " + e);
+            System.out.println("Cause: " + e.getCause());
+            System.out.println("Root cause: " + CauseChains.rootCause(e));
+            System.out.println("Signature: " + CauseChains.signature(e) + "\n");
+        }
 
         // Additional exception features
         // Since JDK7 there are three additional features that are part of the exception system:
         // 1. try-with-resources
         // 2. multi-catch
         // 3. final rethrow / more precise rethrow
-        // T.B.D.
+        //
+        // 1. try-with-resources
+        // Resources declared between the parentheses after try are closed automatically when the try block ends,
+        // normally or by an exception: 'try (Resource r = open()) { ... }'. No finally block needed to close them.
+        // A resource must implement AutoCloseable (or its subinterface Closeable). Several resources can be declared,
+        // separated by ';'. They are closed in the reverse order of declaration.
+        // If the try block throws and close() throws as well, the exception of the try block is the one that's thrown on;
+        // the exception of close() is not lost, but added to it as 'suppressed' exception: see getSuppressed().
+        // With a finally block closing the resource instead, the exception of close() would replace the original one.
+        // The same works for resources that are borrowed from a pool and given back on close, see ResourcePool.
+        //
+        // 2. multi-catch
+        // One catch clause can handle several exception types: 'catch (ArithmeticException | NullPointerException e)'
+        // The types can't be subclasses of each other, and e is implicitly final. See the multiple catch example above.
+        //
+        // 3. more precise rethrow
+        // When a catch clause catches a general type like Exception and rethrows it unchanged, the compiler knows that
+        // only the exceptions the try block can actually throw can come out; the method just declares those,
+        // instead of 'throws Exception'. This requires e not to be assigned in the catch block. See Resilience.call for an example.
+        System.out.println("try-with-resources");
+        System.out.println("-------------------------------------------");
+        try {
+            twrtest();
+        } catch (IllegalStateException e) {
+            System.out.println("Caught: " + e);
+            for (Throwable suppressed : e.getSuppressed()) {
+                System.out.println("Suppressed: " + suppressed);
+            }
+            System.out.println();
+        }
+        try (ResourcePool<AutoCloseable> pool = new ResourcePool<>(() -> () -> System.out.println("pooled resource closed"), 2, 1)) {
+            try (ResourcePool.Lease<AutoCloseable> lease = pool.borrow()) {
+                System.out.println("using pooled resource " + lease.get());
+            } // given back to the pool, not closed
+            System.out.println("closing the pool");
+        } catch (IllegalStateException e) {
+            AsyncLogger.log("Pool close failed: ", e);
+        }
+        System.out.println();
 
         // **********************
         // Demonstration of assert
         // **********************
         // To enable assertion checking at run time, it's needed to start java with having the -ea option specified
         // Without -ea, assertion checking will not take place and no exception will be thrown.
+        // The loop below uses Checks instead of assert: checks can be switched on and off per package while the program runs,
+        // cost nothing when off, and a violation can be counted instead of thrown.
+        // Here they're switched on in counting mode, so the loop runs to the end and the violations are counted.
         System.out.println("Example of using assert");
+        Checks.enable("com.pbe", Checks.Mode.COUNT);
         int n;
         for (int i=0; i < 5; i++) {
             n = getnum(); // calls getnum, which returns an integer value, which is assigned to n
-            assert n > 0; // n is tested to be > 0 and fails when n is 0, causing an AssertionError exception
+            // assert n > 0; // n is tested to be > 0 and fails when n is 0, causing an AssertionError exception
             // assert n > 0 : "n is not > 0"; // assertion with own specific exception message
+            if (CHECKS.on() && n <= 0) CHECKS.violated("n > 0, but n is " + n); // the same test: fails when n is 0 (and -1)
             System.out.println("n is: " + n);
         }
+        System.out.println("Checks violated: " + CHECKS.violations());
     }
 
     // ************************
@@ -386,7 +465,7 @@ public class Main {
     // ************************
 
     // Example of LBYL: Look Before You Leave
-    private static int divideLBYL(int x, int y) {
+    static int divideLBYL(int x, int y) {
         if(y != 0) {
             return x / y;
         } else {
@@ -395,7 +474,7 @@ public class Main {
     }
 
     // Example of EAFP: Easier to Ask for Forgiveness then Permission
-    private static int divideEAFP(int x, int y) {
+    static int divideEAFP(int x, int y) {
         try {
             return x / y;
         } catch (ArithmeticException e) {
@@ -403,11 +482,22 @@ public class Main {
         }
     }
 
+    // Alternative to both: returning the outcome as an IntResult instead of a magic 0 or an exception
+    // Gives error(x) on division by zero; IntResult.orElse(divideResult(x, y), 0) is the same as divideEAFP(x, y)
+    @HotPath
+    static long divideResult(int x, int y) {
+        return y != 0 ? IntResult.ok(x / y) : IntResult.error(x);
+    }
+
     // Example of LBYL: Look Before You Leave
     private static int getIntLBYL() {
-        Scanner s = new Scanner(System.in);
-        boolean isValid = true;
         System.out.println("Please enter an integer ");
+        return getIntLBYL(new Scanner(System.in));
+    }
+
+    // Same as above, but reading from a given Scanner (e.g. one over an in-memory String, as used in LbylEafpBenchmark)
+    static int getIntLBYL(Scanner s) {
+        boolean isValid = true;
         String input = s.next();
         for(int i=0; i<input.length(); i++) {
             if(!Character.isDigit(input.charAt(i))) { // checking up front if input is valid
@@ -423,8 +513,12 @@ public class Main {
 
     // Example of EAFP: Easier to Ask for Forgiveness then Permission
     private static int getIntEAFP() {
-        Scanner s = new Scanner(System.in);
         System.out.println("Please enter an integer ");
+        return getIntEAFP(new Scanner(System.in));
+    }
+
+    // Same as above, but reading from a given Scanner
+    static int getIntEAFP(Scanner s) {
         try { // testing the user input
             return s.nextInt();
         } catch (InputMismatchException e) { // catching exception on input
@@ -449,24 +543,35 @@ public class Main {
     }
 
     // not to be used normally like this, just for example purposes
+    // Reads through the shared IntParser, retrying a bad token through INPUT_RETRY (see Resilience) instead of looping forever
+    // After INPUT_ATTEMPTS bad tokens it gives up with InputMismatchException; at the end of the input it throws NoSuchElementException,
+    // like Scanner.nextInt() does. Both are NoSuchElementExceptions, as caught in the multi-catch example.
     private static int getInt() {
-        Scanner s = new Scanner(System.in);
         System.out.println("Please enter an integer");
-        while(true) {
-            try {
-                return s.nextInt();
-            } catch (InputMismatchException e) {
-                // go round again, reading past the end of line in the input first
-                s.nextInt();
-                System.out.println("Please enter a number using only the digits 0 to 9");
-            }
+        int[] attempts = {0};
+        return INPUT_RETRY.call(() -> readInt(++attempts[0] < INPUT_ATTEMPTS));
+    }
+
+    // One attempt of getInt(); asks again after a bad token only if another attempt follows
+    private static int readInt(boolean retried) {
+        int status = STDIN.next();
+        if (status == IntParser.OK) {
+            return STDIN.value();
+        } else if (status == IntParser.EOF) {
+            throw new NoSuchElementException("No more input");
+        }
+        // the bad token has already been skipped, so a retry reads the next one
+        if (retried) {
+            System.out.println("Please enter a number using only the digits 0 to 9");
         }
+        throw new InputMismatchException("Not an integer");
     }
 
     // Method used in example to demonstrate use of a nested try statement, with method call
     static void nesttry(int a) {
         try { // NESTED TRY !
             System.out.println("try in nest-try() called");
+            NESTTRY_FAULT.inject(); // an injected out-of-bounds is caught below, anything else escapes like the '/ zero'
             if (a == 1)
                 a = a / (a - a);  // causing another '/ zero' exception
             if (a == 2) {
@@ -474,24 +579,73 @@ public class Main {
                 c[10] = 11; // causing 'out of bounds' exception
             }
         } catch (ArrayIndexOutOfBoundsException e) { // first catch in nested try
-            System.out.println("Array index out-of-bounds: " + e);
+            AsyncLogger.log("Array index out-of-bounds: ", e);
         }
     }
 
     // Method used in example to demonstrate use of throw
     static void throwtest() {
         try {
-            throw new NullPointerException("throw test"); // throw exception - notice 'new' here creates an instance of NullPointerException
+            throw ExceptionEvent.emit(ExceptionEvent.THROWTEST, new NullPointerException("throw test"), 0); // throw exception - notice 'new' here creates an instance of NullPointerException
         } catch (NullPointerException e) { // catch exception
+            THROWTEST_SITE.record(e);
             System.out.println("exception caught inside throwtest()");
             throw e; // rethrow the exception
         }
     }
 
+    // Method used in example to demonstrate chained exceptions
+    // Wraps the ArithmeticException twice: the thrown IllegalStateException has an IllegalArgumentException as cause,
+    // which has the ArithmeticException as cause
+    static void chaintest() {
+        try {
+            try {
+                int b = 10 / 0; // causing a '/ zero' exception
+            } catch (ArithmeticException e) {
+                IllegalArgumentException wrapper = new IllegalArgumentException("invalid divisor");
+                wrapper.initCause(e); // setting the cause afterwards
+                throw wrapper;
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("calculation failed", e); // setting the cause through the constructor
+        }
+    }
+
+    // Method used in example to demonstrate try-with-resources
+    // Both resources are closed (second one first) after the try block threw; the second one also fails to close
+    static void twrtest() {
+        try (AutoCloseable first = resource("first", false);
+             AutoCloseable second = resource("second", true)) {
+            System.out.println("inside twrtest(), using the " + first + " and " + second + " resources");
+            throw new IllegalStateException("demo");
+        } catch (IllegalStateException e) {
+            throw e; // comes with the close() failure attached as suppressed exception
+        } catch (Exception e) {
+            System.out.println("close failed: " + e); // close() failure when the try block itself didn't throw
+        }
+    }
+
+    // Resource for twrtest(); prints when it's closed, or fails to close
+    static AutoCloseable resource(String name, boolean failOnClose) {
+        return new AutoCloseable() {
+            @Override
+            public void close() {
+                if (failOnClose) {
+                    throw new IllegalArgumentException(name + " resource failed to close");
+                }
+                System.out.println(name + " resource closed");
+            }
+
+            public String toString() {
+                return name;
+            }
+        };
+    }
+
     // Method used in example to demonstrate use of throws
     static void throwsException() throws IllegalAccessException {
         System.out.println("Inside causeException()");
-        throw new IllegalAccessException("demonstration");
+        throw ExceptionEvent.emit(ExceptionEvent.THROWS_EXCEPTION, new IllegalAccessException("demonstration"), 0);
     }
 
     // Method used in example to demonstrate finally keyword
@@ -529,6 +683,9 @@ public class Main {
 
     // Used in assert example
     static int getnum() {
+        if (GETNUM_FAULT.fire()) {
+            return 0; // injected fault: a value that fails the check
+        }
         return val--; // return an integer
     }
 }
\ No newline at end of file
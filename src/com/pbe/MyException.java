@@ -3,13 +3,58 @@ package com.pbe;
 // Class used in example to demonstrate declaring a new subclass of Exception
 // MyException is defined as subclass of Exception
 public class MyException extends Exception {
-    private int num;
+
+    // Switch for MyException.of(): when true, every exception is created new and with a full stack trace (useful for debugging)
+    // Defaults to false, unless the JVM is started with -Dcom.pbe.MyException.stackTraces=true
+    static volatile boolean stackTraces = Boolean.getBoolean("com.pbe.MyException.stackTraces");
+
+    // Range of num values for which MyException.of() keeps reusable instances, per thread
+    // Starts at 11, as ExceptionDemo.compute() throws for values > 10
+    static final int CACHE_MIN = 11;
+    static final int CACHE_SIZE = 1024;
+
+    private static final ThreadLocal<MyException[]> CACHE = ThreadLocal.withInitial(() -> new MyException[CACHE_SIZE]);
+
+    private final int num;
 
     // Constructor that accepts a number and saves it as num
     MyException(int a) {
         num = a;
     }
 
+    // Constructor that can skip filling in the stack trace
+    // Uses the protected Throwable(message, cause, enableSuppression, writableStackTrace) constructor:
+    // with writableStackTrace false, fillInStackTrace() is not called, which is the expensive part of creating an exception
+    MyException(int a, boolean writableStackTrace) {
+        super(null, null, false, writableStackTrace);
+        num = a;
+    }
+
+    // Returns a MyException for the given number, meant for throwing on hot paths
+    // Unless stackTraces is switched on, the exception has no stack trace and, for num in the cached range,
+    // it is an instance reused by the current thread. This is safe because a MyException never changes after creation,
+    // but don't rely on its identity, and don't add suppressed exceptions to it (suppression is disabled).
+    static MyException of(int a) {
+        if (stackTraces) {
+            return new MyException(a);
+        }
+        int index = a - CACHE_MIN;
+        if (index < 0 || index >= CACHE_SIZE) {
+            return new MyException(a, false);
+        }
+        MyException[] cache = CACHE.get();
+        MyException e = cache[index];
+        if (e == null) {
+            e = new MyException(a, false);
+            cache[index] = e;
+        }
+        return e;
+    }
+
+    int getNum() {
+        return num;
+    }
+
     // Overridden toString() to display the value (num) of the exception
     public String toString() {
         return "MyException[" + num + "]";
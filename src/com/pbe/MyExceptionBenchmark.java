@@ -0,0 +1,56 @@
+package com.pbe;
+
+// Benchmark of ExceptionDemo's compute check with the different ways of creating the thrown MyException:
+// 1. new MyException(a) with a full stack trace (MyException.stackTraces switched on)
+// 2. a new stackless MyException(a, false)
+// 3. MyException.of(a): stackless and reused per thread
+// Besides ns/op, it shows which share of one CPU core each variant needs to handle 1M calls/s
+public class MyExceptionBenchmark {
+
+    static final double[] FAILURE_RATES = {0.1, 0.5, 1.0};
+    static final int OPS = 200_000;
+    static final int CALLS_PER_SECOND = 1_000_000;
+
+    public static void main(String[] args) {
+        for (double rate : FAILURE_RATES) {
+            boolean[] fail = Bench.failures(OPS, rate);
+            int[] input = new int[OPS];
+            for (int i = 0; i < OPS; i++) {
+                input[i] = fail[i] ? 11 + (i % 100) : i % 10; // > 10 makes compute throw
+            }
+            int pct = (int) (rate * 100);
+
+            MyException.stackTraces = true;
+            report(Bench.run("full stack trace    " + pct + "% failing", OPS, i -> callCheck(input[i])));
+            MyException.stackTraces = false;
+            report(Bench.run("stackless, new      " + pct + "% failing", OPS, i -> callStackless(input[i])));
+            report(Bench.run("stackless, cached   " + pct + "% failing", OPS, i -> callCheck(input[i])));
+            System.out.println();
+        }
+    }
+
+    static int callCheck(int a) {
+        try {
+            ExceptionDemo.check(a);
+            return 0;
+        } catch (MyException e) {
+            return e.getNum();
+        }
+    }
+
+    // Same check as ExceptionDemo.check(), but always creating a new stackless exception
+    static int callStackless(int a) {
+        try {
+            if (a > 10) {
+                throw new MyException(a, false);
+            }
+            return 0;
+        } catch (MyException e) {
+            return e.getNum();
+        }
+    }
+
+    static void report(double nsPerOp) {
+        System.out.printf("    -> at %,d calls/s: %.1f%% of one core%n", CALLS_PER_SECOND, nsPerOp * CALLS_PER_SECOND / 1e7);
+    }
+}
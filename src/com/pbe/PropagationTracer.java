@@ -0,0 +1,113 @@
+package com.pbe;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Lightweight alternative to a full stack trace, for throw sites that want to know where an exception came from
+// but can't afford Throwable.fillInStackTrace() walking (and keeping) the whole stack on every throw
+// - capture() records only the top K frames, through StackWalker with limit(K): the rest of the stack is never walked
+// - the frames are StackWalker.StackFrame objects; file names and line numbers are only resolved when the trace is printed
+// - it's opt-in per throw site: create one tracer per site, and attach() its trace to the exceptions thrown there
+//
+//   static final PropagationTracer A_TRACER = new PropagationTracer("ExceptionPropagation.a", 3);
+//   ...
+//   throw A_TRACER.attach(new SomeStacklessException());
+//
+// attach() adds the trace as a suppressed exception, so printStackTrace() shows it as "Suppressed: PropagationTrace[...]".
+// That requires an exception with suppression enabled: the cached stackless MyException.of() instances ignore it.
+final class PropagationTracer {
+
+    private static final StackWalker WALKER = StackWalker.getInstance();
+    private static final String TRACER_CLASS = PropagationTracer.class.getName();
+
+    private final String site;
+    private final int k;
+
+    PropagationTracer(String site, int k) {
+        this.site = site;
+        this.k = k;
+    }
+
+    // The top K frames of the calling method's stack (the tracer's own frames left out)
+    Trace capture() {
+        List<StackWalker.StackFrame> frames = WALKER.walk(s -> s
+                .dropWhile(f -> f.getClassName().equals(TRACER_CLASS))
+                .limit(k)
+                .collect(Collectors.toList()));
+        return new Trace(site, frames);
+    }
+
+    // Adds a captured trace to t as suppressed exception and returns t, for use in 'throw tracer.attach(...)'
+    <T extends Throwable> T attach(T t) {
+        t.addSuppressed(capture());
+        return t;
+    }
+
+    // Top K frames of a throw site, as a Throwable so it can be attached to an exception
+    // It has no stack trace of its own (and no fillInStackTrace() cost); the frames are shown by toString()
+    static final class Trace extends RuntimeException {
+        private final transient List<StackWalker.StackFrame> frames;
+        private StackTraceElement[] elements;
+
+        private Trace(String site, List<StackWalker.StackFrame> frames) {
+            super(site, null, false, false);
+            this.frames = frames;
+        }
+
+        List<StackWalker.StackFrame> frames() {
+            return frames;
+        }
+
+        // The frames as StackTraceElements, resolved on first use
+        synchronized StackTraceElement[] elements() {
+            if (elements == null) {
+                elements = frames.stream().map(StackWalker.StackFrame::toStackTraceElement).toArray(StackTraceElement[]::new);
+            }
+            return elements;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("PropagationTrace[").append(getMessage()).append(']');
+            for (StackTraceElement element : elements()) {
+                sb.append(System.lineSeparator()).append("\t\tat ").append(element);
+            }
+            return sb.toString();
+        }
+    }
+
+    // Demo: ExceptionPropagation's a() -> b() -> c() chain, with the '/ by zero' traced 3 frames deep
+    public static void main(String[] args) {
+        new TracedChain(new PropagationTracer("ExceptionPropagation.a", 3)).c();
+    }
+
+    // Same a() -> b() -> c() chain as ExceptionPropagation, throwing a stackless exception with an attached trace
+    private static class TracedChain {
+        private final PropagationTracer tracer;
+
+        TracedChain(PropagationTracer tracer) {
+            this.tracer = tracer;
+        }
+
+        void a() {
+            throw tracer.attach(new ArithmeticException("/ by zero") {
+                @Override
+                public synchronized Throwable fillInStackTrace() {
+                    return this; // no stack trace of its own, only the attached top 3 frames
+                }
+            });
+        }
+
+        void b() {
+            a();
+        }
+
+        void c() {
+            try {
+                b();
+            } catch (ArithmeticException e) {
+                e.printStackTrace(System.out);
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.pbe;
+
+// Benchmark of the cost of recording where an exception came from, at stack depths from 3 to 500:
+// - full: a normal exception, with fillInStackTrace() walking the whole stack
+// - walker K=4: a stackless exception plus PropagationTracer.capture() of the top 4 frames
+// - none: a stackless exception, no trace at all (also the cost of the recursion and the throw itself)
+// The exception is thrown at the given depth and caught at the top, like ExceptionPropagation's a() -> b() -> c()
+public class PropagationTracerBenchmark {
+
+    static final int[] DEPTHS = {3, 10, 50, 100, 500};
+    static final int K = 4;
+
+    static final PropagationTracer TRACER = new PropagationTracer("PropagationTracerBenchmark", K);
+
+    enum Mode { FULL, WALKER, NONE }
+
+    public static void main(String[] args) {
+        for (int depth : DEPTHS) {
+            int ops = Math.max(2_000, 1_000_000 / depth);
+            Bench.run("full        depth " + depth, ops, i -> top(depth, Mode.FULL));
+            Bench.run("walker K=" + K + "  depth " + depth, ops, i -> top(depth, Mode.WALKER));
+            Bench.run("none        depth " + depth, ops, i -> top(depth, Mode.NONE));
+            System.out.println();
+        }
+    }
+
+    static int top(int depth, Mode mode) {
+        try {
+            return recurse(depth, mode);
+        } catch (RuntimeException e) {
+            return 1;
+        }
+    }
+
+    static int recurse(int depth, Mode mode) {
+        if (depth > 1) {
+            return recurse(depth - 1, mode) + 1;
+        }
+        switch (mode) {
+            case FULL:
+                throw new RuntimeException("full");
+            case WALKER:
+                RuntimeException e = new RuntimeException("walker", null, true, false) { };
+                e.addSuppressed(TRACER.capture());
+                throw e;
+            default:
+                throw new RuntimeException("none", null, false, false) { };
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.pbe;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+// Runs calls with bounded retries, backoff, a circuit breaker and a bulkhead, as the general form of Main.getInt's retry loop
+// (which retried forever, without pause: fine for a person at a keyboard, dangerous for a service that keeps failing)
+// - retries: per exception type, how many attempts in total and the backoff between them (see RetryRule);
+//   exception types without a rule are not retried
+// - backoff: exponential (baseDelay * 2^retry, capped at maxDelay) with full jitter: the actual pause is a random
+//   value between 0 and that, so callers that failed together don't all retry at the same moment
+// - circuit breaker (optional): refuses calls while the called thing is known to be failing, see CircuitBreaker;
+//   by default every exception counts as a failure of the called thing, failureWhen() narrows that per exception type
+//   (e.g. a rejected request is the caller's fault, not a sign of an outage). An exception that doesn't count is a
+//   success for the breaker: the called thing did answer (and a half-open trial ending that way closes the breaker)
+// - bulkhead (optional): at most maxConcurrent calls at the same time; any more are refused, not queued
+// Refused calls throw Resilience.Rejected. When the retries are used up, the exception of the last attempt is thrown.
+// A Resilience is built, then used: the first call() freezes it, and configuring it after that throws IllegalStateException.
+// Rules are resolved per exception class once and cached, so a later change couldn't be seen reliably anyway; once frozen
+// the rule maps are only read, which is safe from any number of threads.
+final class Resilience {
+
+    // Retry settings for one exception type (and its subclasses), and whether it counts as a failure for the breaker
+    static final class RetryRule {
+        final int maxAttempts;
+        final long baseDelayNanos;
+        final long maxDelayNanos;
+        final Predicate<Exception> countsAsFailure;
+
+        RetryRule(int maxAttempts, long baseDelayNanos, long maxDelayNanos) {
+            this(maxAttempts, baseDelayNanos, maxDelayNanos, ALWAYS);
+        }
+
+        RetryRule(int maxAttempts, long baseDelayNanos, long maxDelayNanos, Predicate<Exception> countsAsFailure) {
+            this.maxAttempts = maxAttempts;
+            this.baseDelayNanos = baseDelayNanos;
+            this.maxDelayNanos = maxDelayNanos;
+            this.countsAsFailure = countsAsFailure;
+        }
+
+        // Pause before retry number 'retry' (1 for the first retry)
+        long backoffNanos(int retry) {
+            if (baseDelayNanos <= 0) {
+                return 0;
+            }
+            long cap = baseDelayNanos << Math.min(retry - 1, 30);
+            if (cap <= 0 || cap > maxDelayNanos) {
+                cap = maxDelayNanos;
+            }
+            return ThreadLocalRandom.current().nextLong(cap + 1);
+        }
+    }
+
+    // Thrown when the circuit breaker or bulkhead refuses a call
+    static final class Rejected extends RuntimeException {
+        Rejected(String reason) {
+            super(reason, null, false, false); // no stack trace: a refusal is cheap on purpose
+        }
+    }
+
+    private static final Predicate<Exception> ALWAYS = e -> true;
+    private static final RetryRule NO_RETRY = new RetryRule(1, 0, 0);
+
+    private final Map<Class<? extends Exception>, RetryRule> rules = new LinkedHashMap<>();
+    private final Map<Class<? extends Exception>, Predicate<Exception>> failureTests = new LinkedHashMap<>();
+    private final ClassValue<RetryRule> ruleByType = new ClassValue<>() {
+        @Override
+        protected RetryRule computeValue(Class<?> type) {
+            RetryRule rule = mostSpecific(rules, type, NO_RETRY);
+            Predicate<Exception> countsAsFailure = mostSpecific(failureTests, type, ALWAYS);
+            return countsAsFailure == rule.countsAsFailure ? rule
+                    : new RetryRule(rule.maxAttempts, rule.baseDelayNanos, rule.maxDelayNanos, countsAsFailure);
+        }
+    };
+    private CircuitBreaker breaker;
+    private Semaphore bulkhead;
+    private volatile boolean frozen; // set by the first call()
+
+    // The value for the type's closest superclass (or the type itself) in the map
+    private static <V> V mostSpecific(Map<Class<? extends Exception>, V> map, Class<?> type, V otherwise) {
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            V value = map.get(c);
+            if (value != null) {
+                return value;
+            }
+        }
+        return otherwise;
+    }
+
+    // Retry calls failing with the given exception type, up to maxAttempts attempts in total
+    Resilience retry(Class<? extends Exception> type, int maxAttempts, Duration baseDelay, Duration maxDelay) {
+        checkNotFrozen();
+        rules.put(type, new RetryRule(maxAttempts, baseDelay.toNanos(), maxDelay.toNanos()));
+        return this;
+    }
+
+    // Exceptions of the given type (and its subclasses) count as a breaker failure only when the test says so;
+    // e.g. failureWhen(IllegalArgumentException.class, e -> false) for calls refused because of their arguments
+    <X extends Exception> Resilience failureWhen(Class<X> type, Predicate<? super X> countsAsFailure) {
+        checkNotFrozen();
+        failureTests.put(type, e -> countsAsFailure.test(type.cast(e)));
+        return this;
+    }
+
+    Resilience circuitBreaker(int failureThreshold, long openMillis) {
+        checkNotFrozen();
+        breaker = new CircuitBreaker(failureThreshold, openMillis);
+        return this;
+    }
+
+    Resilience bulkhead(int maxConcurrent) {
+        checkNotFrozen();
+        bulkhead = new Semaphore(maxConcurrent);
+        return this;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("Resilience is configured before its first call, not after");
+        }
+    }
+
+    CircuitBreaker breaker() {
+        return breaker;
+    }
+
+    // The call to protect; like Callable, but declaring its own exception type, so call() throws just that
+    interface Call<T, X extends Exception> {
+        T call() throws X;
+    }
+
+    // Runs the call with the configured retries, circuit breaker and bulkhead
+    // Rethrowing the caught 'Exception e' compiles as 'throws X' thanks to Java 7's more precise rethrow:
+    // the compiler knows that e can only be an X or an unchecked exception (and the caught 'Throwable t' only an Error)
+    <T, X extends Exception> T call(Call<T, X> callable) throws X {
+        if (!frozen) {
+            frozen = true;
+        }
+        if (bulkhead != null && !bulkhead.tryAcquire()) {
+            throw new Rejected("bulkhead full");
+        }
+        try {
+            for (int attempt = 1; ; attempt++) {
+                if (breaker != null && !breaker.tryAcquire()) {
+                    throw new Rejected("circuit open");
+                }
+                try {
+                    T result = callable.call();
+                    if (breaker != null) {
+                        breaker.onSuccess();
+                    }
+                    return result;
+                } catch (Exception e) {
+                    RetryRule rule = ruleByType.get(e.getClass());
+                    if (breaker != null) {
+                        if (rule.countsAsFailure.test(e)) {
+                            breaker.onFailure();
+                        } else {
+                            breaker.onSuccess();
+                        }
+                    }
+                    if (attempt >= rule.maxAttempts) {
+                        throw e;
+                    }
+                    long pause = rule.backoffNanos(attempt);
+                    if (pause > 0) {
+                        LockSupport.parkNanos(pause);
+                    }
+                } catch (Throwable t) { // an Error: not retried, but the breaker must hear of it (a half-open trial would hang)
+                    if (breaker != null) {
+                        breaker.onFailure();
+                    }
+                    throw t;
+                }
+            }
+        } finally {
+            if (bulkhead != null) {
+                bulkhead.release();
+            }
+        }
+    }
+}
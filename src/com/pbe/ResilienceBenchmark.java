@@ -0,0 +1,88 @@
+package com.pbe;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+// How throughput holds up when a dependency fails more and more, with different ways of handling its failures
+// A local stub fails a given share (0 - 90%) of its calls. THREADS threads keep calling it for a while through:
+// - unbounded: retry until it works, without pause (the original getInt loop)
+// - retry: at most 3 attempts, with jittered exponential backoff (0.05 ms up to 1 ms)
+// - retry+breaker+bulkhead: as retry, plus a circuit breaker (opens after 20 failures in a row, for 20 ms) and a bulkhead of 4
+// Reported: calls that succeeded per second, and the load put on the stub (its invocations per second).
+// Graceful is: successes drop in line with the failure rate, while the load on the failing stub doesn't go up.
+public class ResilienceBenchmark {
+
+    static final int THREADS = 8;
+    static final long RUN_MILLIS = 300;
+
+    // Thrown by the stub: preallocated and stackless, so the benchmark measures the handling, not the exception creation
+    static final Exception STUB_FAILURE = new Exception("stub failure", null, false, false) { };
+
+    static final Duration BASE_DELAY = Duration.ofNanos(50_000);
+    static final Duration MAX_DELAY = Duration.ofMillis(1);
+
+    static final LongAdder stubCalls = new LongAdder();
+    static volatile double failureRate;
+
+    static int stub() throws Exception {
+        stubCalls.increment();
+        Bench.consumeCpu(200); // the stub's own work
+        if (ThreadLocalRandom.current().nextDouble() < failureRate) {
+            throw STUB_FAILURE;
+        }
+        return 1;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.printf("%-26s %5s %15s %15s %12s%n", "", "fail", "successes/s", "stub calls/s", "rejected/s");
+        for (int pct = 0; pct <= 90; pct += 10) {
+            failureRate = pct / 100.0;
+            run("unbounded", pct, null);
+            run("retry", pct, new Resilience().retry(Exception.class, 3, BASE_DELAY, MAX_DELAY));
+            run("retry+breaker+bulkhead", pct, new Resilience().retry(Exception.class, 3, BASE_DELAY, MAX_DELAY).circuitBreaker(20, 20).bulkhead(4));
+            System.out.println();
+        }
+    }
+
+    static void run(String label, int pct, Resilience resilience) throws InterruptedException {
+        LongAdder successes = new LongAdder();
+        LongAdder rejected = new LongAdder();
+        stubCalls.reset();
+        long end = System.nanoTime() + RUN_MILLIS * 1_000_000;
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            threads[t] = new Thread(() -> {
+                while (System.nanoTime() < end) {
+                    try {
+                        if (resilience == null) {
+                            while (true) {
+                                try {
+                                    stub();
+                                    break;
+                                } catch (Exception e) {
+                                    // go round again
+                                }
+                            }
+                        } else {
+                            resilience.call(ResilienceBenchmark::stub);
+                        }
+                        successes.increment();
+                    } catch (Resilience.Rejected e) {
+                        rejected.increment();
+                        Thread.yield();
+                    } catch (Exception e) {
+                        // retries used up
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = RUN_MILLIS / 1000.0;
+        System.out.printf("%-26s %4d%% %,15.0f %,15.0f %,12.0f%n", label, pct,
+                successes.sum() / seconds, stubCalls.sum() / seconds, rejected.sum() / seconds);
+    }
+}
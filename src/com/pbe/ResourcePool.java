@@ -0,0 +1,264 @@
+package com.pbe;
+
+import java.lang.ref.Cleaner;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+// Pool of AutoCloseable resources, borrowed and given back with try-with-resources:
+//
+//   try (ResourcePool.Lease<Connection> lease = pool.borrow()) {
+//       lease.get().send(...);
+//   } // the resource goes back to the pool here, also when send() throws
+//
+// - free lists are striped: the free leases are spread over several stripes (arrays of slots), and each thread
+//   starts looking in its own stripe, so threads mostly don't touch the same memory; taking and putting back a lease
+//   is a compare-and-set on a slot, without locks
+// - every resource has one pooled Entry for its whole life in the pool, with LEASES_PER_ENTRY Leases made up front:
+//   a borrow takes the next one round, so borrowing and giving back allocate nothing. Each borrow bumps the entry's
+//   generation and stamps it on the lease; get() and close() only act if the lease's stamp is still the entry's generation.
+//   So a lease that was closed stays closed (using it, or closing it again, doesn't touch whoever borrowed the resource
+//   next) until its Lease object comes round again, LEASES_PER_ENTRY borrows of that resource later: then the old holder
+//   would act on the new borrow. Telling every stale lease apart for good takes a new object per borrow, i.e. an allocation.
+// - a Lease that is never closed (a leak) is noticed through a Cleaner once its entry is garbage collected (the entry and
+//   its leases are only referred to by the lease handed out while borrowed): the leak is counted, and its resource is
+//   closed and replaced by a new one, so the pool doesn't slowly run dry
+// - a resource that throws on close (when it's discarded with invalidate(), or when the pool is closed) doesn't stop the rest:
+//   the exception is recorded as suppressed exception, as try-with-resources does
+// Close the pool when done with it, after all leases are given back: the Cleaner keeps it reachable until then.
+final class ResourcePool<R extends AutoCloseable> implements AutoCloseable {
+
+    private static final Cleaner CLEANER = Cleaner.create();
+    private static final int SLOTS_PER_STRIPE = 8;
+    private static final int LEASES_PER_ENTRY = 4; // a power of two
+
+    private final Supplier<R> factory;
+    private final AtomicReferenceArray<Entry<R>> slots;
+    private final int stripeMask;
+    private final LongAdder leaks = new LongAdder();
+    private final LongAdder closeFailures = new LongAdder();
+    private volatile boolean closed;
+
+    // A pool of 'size' resources made by the factory, spread over 'stripes' stripes (rounded up to a power of two)
+    ResourcePool(Supplier<R> factory, int size, int stripes) {
+        int stripeCount = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        int slotsPerStripe = Math.max(SLOTS_PER_STRIPE, (size + stripeCount - 1) / stripeCount);
+        this.factory = factory;
+        this.stripeMask = stripeCount - 1;
+        this.slots = new AtomicReferenceArray<>(stripeCount * slotsPerStripe);
+        for (int i = 0; i < size; i++) {
+            int slot = (i & stripeMask) * slotsPerStripe + i / stripeCount; // round-robin over the stripes
+            slots.set(slot, new Entry<>(this, factory.get()));
+        }
+    }
+
+    // A pooled resource, with the generation of its current borrow and the leases it's handed out with
+    private static final class Entry<R extends AutoCloseable> {
+        final ResourcePool<R> pool;
+        final R resource;
+        final LeakAction<R> leakAction;
+        final List<Lease<R>> leases;
+        volatile int generation; // odd while borrowed
+
+        Entry(ResourcePool<R> pool, R resource) {
+            this.pool = pool;
+            this.resource = resource;
+            this.leakAction = new LeakAction<>(pool, resource);
+            List<Lease<R>> leases = new ArrayList<>(LEASES_PER_ENTRY);
+            for (int i = 0; i < LEASES_PER_ENTRY; i++) {
+                leases.add(new Lease<>(this));
+            }
+            this.leases = leases;
+            CLEANER.register(this, leakAction);
+        }
+
+        // Marks the entry borrowed and stamps the next lease with the new generation
+        Lease<R> lend() {
+            int g = generation + 1; // odd: borrowed
+            generation = g;
+            Lease<R> lease = leases.get((g >>> 1) & (LEASES_PER_ENTRY - 1));
+            lease.generation = g;
+            lease.invalid = false;
+            return lease;
+        }
+    }
+
+    // A borrowed resource; close() gives it back to the pool. Valid for one borrow only (see above).
+    static final class Lease<R extends AutoCloseable> implements AutoCloseable {
+        private final Entry<R> entry;
+        private int generation;
+        private boolean invalid;
+
+        private Lease(Entry<R> entry) {
+            this.entry = entry;
+        }
+
+        private boolean current() {
+            return entry.generation == generation;
+        }
+
+        R get() {
+            if (!current()) {
+                throw new IllegalStateException("lease is closed");
+            }
+            return entry.resource;
+        }
+
+        // Marks the resource as broken: on close() it's closed and replaced instead of given back
+        void invalidate() {
+            invalid = true;
+        }
+
+        // Gives the resource back; throws IllegalStateException only if an invalidated resource fails to close
+        // (inside try-with-resources that exception is added as suppressed exception to the one thrown by the body, if any)
+        @Override
+        public void close() {
+            if (!current()) {
+                return; // closed already
+            }
+            entry.generation = generation + 1; // even: not borrowed
+            if (invalid) {
+                entry.pool.replace(entry);
+            } else {
+                entry.pool.giveBack(entry);
+            }
+        }
+    }
+
+    // Cleaner action for an entry that was dropped without close(); must not refer to the entry itself
+    // Entries the pool is done with (replaced, or closed with the pool) are garbage too: their action is disarmed first
+    private static final class LeakAction<R extends AutoCloseable> implements Runnable {
+        private final ResourcePool<R> pool;
+        private final R resource;
+        private volatile boolean disarmed;
+
+        LeakAction(ResourcePool<R> pool, R resource) {
+            this.pool = pool;
+            this.resource = resource;
+        }
+
+        @Override
+        public void run() {
+            if (disarmed) {
+                return;
+            }
+            pool.leaks.increment();
+            pool.closeQuietly(resource); // a failure is counted in closeFailures; there's no caller to report it to
+            if (!pool.closed) {
+                pool.giveBack(new Entry<>(pool, pool.factory.get()));
+            }
+        }
+    }
+
+    // Takes a free resource, waiting for one if there's none
+    Lease<R> borrow() {
+        Lease<R> lease;
+        while ((lease = tryBorrow()) == null) {
+            if (closed) {
+                throw new NoSuchElementException("pool is closed");
+            }
+            LockSupport.parkNanos(1_000);
+        }
+        return lease;
+    }
+
+    // Takes a free resource, or returns null if there's none right now
+    Lease<R> tryBorrow() {
+        int n = slots.length();
+        int start = stripeStart();
+        for (int i = 0; i < n; i++) {
+            int slot = (start + i) % n;
+            Entry<R> entry = slots.get(slot);
+            if (entry != null && slots.compareAndSet(slot, entry, null)) {
+                return entry.lend();
+            }
+        }
+        return null;
+    }
+
+    private void giveBack(Entry<R> entry) {
+        if (closed) {
+            entry.leakAction.disarmed = true;
+            closeQuietly(entry.resource);
+            return;
+        }
+        int n = slots.length();
+        int start = stripeStart();
+        for (int i = 0; ; i = (i + 1) % n) {
+            int slot = (start + i) % n;
+            if (slots.get(slot) == null && slots.compareAndSet(slot, null, entry)) {
+                return;
+            }
+        }
+    }
+
+    // Closes the resource of an invalidated lease and puts a new one in its place
+    private void replace(Entry<R> entry) {
+        entry.leakAction.disarmed = true;
+        try {
+            entry.resource.close();
+        } catch (Exception e) {
+            closeFailures.increment();
+            throw new IllegalStateException("resource failed to close", e);
+        } finally {
+            if (!closed) {
+                giveBack(new Entry<>(this, factory.get()));
+            }
+        }
+    }
+
+    private void closeQuietly(R resource) {
+        try {
+            resource.close();
+        } catch (Exception e) {
+            closeFailures.increment();
+        }
+    }
+
+    // First slot of the current thread's stripe
+    private int stripeStart() {
+        int slotsPerStripe = slots.length() / (stripeMask + 1);
+        return ((int) Thread.currentThread().getId() & stripeMask) * slotsPerStripe;
+    }
+
+    long leaks() {
+        return leaks.sum();
+    }
+
+    long closeFailures() {
+        return closeFailures.sum();
+    }
+
+    // Closes all free resources (borrowed ones are closed when they're given back)
+    // If any of them fail to close, an IllegalStateException is thrown with the first exception as its cause,
+    // and the others added to it as suppressed exceptions
+    @Override
+    public void close() {
+        closed = true;
+        IllegalStateException failure = null;
+        for (int i = 0; i < slots.length(); i++) {
+            Entry<R> entry = slots.getAndSet(i, null);
+            if (entry == null) {
+                continue;
+            }
+            entry.leakAction.disarmed = true;
+            try {
+                entry.resource.close();
+            } catch (Exception e) {
+                closeFailures.increment();
+                if (failure == null) {
+                    failure = new IllegalStateException("resource failed to close", e);
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.pbe;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.LongAdder;
+
+// Throughput of borrowing and giving back pooled resources with try-with-resources, as handlers do per request,
+// for 1 to 32 threads:
+// - striped: ResourcePool, with one stripe per thread (up to 32)
+// - locked: a single ArrayDeque behind one lock, the straightforward pool everybody writes first
+// Each thread does a little work (Bench.consumeCpu) while holding the resource. Linear scaling shows as ops/s growing
+// in step with the thread count, up to the number of cores; beyond that ops/s should stay flat, not drop.
+// Also shown: the allocation per borrow/give back (none: the leases are made up front), the leak detection,
+// and that a closed lease stays closed when its resource is borrowed again.
+public class ResourcePoolBenchmark {
+
+    static final long RUN_MILLIS = 300;
+    static final int POOL_SIZE = 64;
+    static final int WORK_TOKENS = 50;
+
+    // Resource that does nothing; counts its closes
+    static final class Resource implements AutoCloseable {
+        static final LongAdder closed = new LongAdder();
+
+        @Override
+        public void close() {
+            closed.increment();
+        }
+    }
+
+    // The baseline: one lock around one free list
+    static final class LockedPool {
+        private final ArrayDeque<Resource> free = new ArrayDeque<>();
+
+        LockedPool(int size) {
+            for (int i = 0; i < size; i++) {
+                free.push(new Resource());
+            }
+        }
+
+        Resource borrow() {
+            synchronized (free) {
+                while (free.isEmpty()) {
+                    try {
+                        free.wait();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                return free.pop();
+            }
+        }
+
+        void giveBack(Resource r) {
+            synchronized (free) {
+                free.push(r);
+                free.notify();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("cores: " + Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-8s %7s %15s %15s%n", "", "threads", "striped ops/s", "locked ops/s");
+        for (int threads = 1; threads <= 32; threads *= 2) {
+            try (ResourcePool<Resource> pool = new ResourcePool<>(Resource::new, POOL_SIZE, threads)) {
+                LockedPool locked = new LockedPool(POOL_SIZE);
+                double striped = run(threads, () -> {
+                    try (ResourcePool.Lease<Resource> lease = pool.borrow()) {
+                        Bench.sink += Bench.consumeCpu(WORK_TOKENS) + lease.get().hashCode();
+                    }
+                });
+                double lockedOps = run(threads, () -> {
+                    Resource r = locked.borrow();
+                    try {
+                        Bench.sink += Bench.consumeCpu(WORK_TOKENS) + r.hashCode();
+                    } finally {
+                        locked.giveBack(r);
+                    }
+                });
+                System.out.printf("%-8s %7d %,15.0f %,15.0f%n", "", threads, striped, lockedOps);
+            }
+        }
+        System.out.println();
+
+        try (ResourcePool<Resource> pool = new ResourcePool<>(Resource::new, POOL_SIZE, 1)) {
+            Bench.run("borrow/give back", 1_000_000, i -> {
+                try (ResourcePool.Lease<Resource> lease = pool.borrow()) {
+                    return lease.get().hashCode();
+                }
+            });
+        }
+        System.out.println();
+
+        // Leak detection: borrow leases and drop them without closing
+        ResourcePool<Resource> pool = new ResourcePool<>(Resource::new, POOL_SIZE, 4);
+        for (int i = 0; i < 10; i++) {
+            pool.borrow(); // not closed: a leak
+        }
+        for (int i = 0; i < 50 && pool.leaks() < 10; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        System.out.println("leaks detected: " + pool.leaks() + " (of 10)");
+        int available = 0;
+        while (pool.tryBorrow() != null) {
+            available++;
+        }
+        System.out.println("resources available after the leaks: " + available + " (of " + POOL_SIZE + ")");
+        pool.close();
+
+        // A stale lease: closing it again, after its resource was borrowed again, must not give that borrow back
+        try (ResourcePool<Resource> single = new ResourcePool<>(Resource::new, 1, 1)) {
+            ResourcePool.Lease<Resource> first = single.borrow();
+            first.close();
+            ResourcePool.Lease<Resource> second = single.borrow();
+            first.close();
+            boolean stillBorrowed = single.tryBorrow() == null;
+            boolean staleRejected;
+            try {
+                first.get();
+                staleRejected = false;
+            } catch (IllegalStateException e) {
+                staleRejected = true;
+            }
+            System.out.println("stale lease: " + (stillBorrowed && staleRejected && second.get() != null ? "no effect (OK)" : "FAILED"));
+            second.close();
+        }
+    }
+
+    interface Work {
+        void run() throws Exception;
+    }
+
+    // Total operations per second of 'threads' threads doing work for RUN_MILLIS (after a warm-up run)
+    static double run(int threads, Work work) throws InterruptedException {
+        runFor(threads, work, RUN_MILLIS / 3);
+        return runFor(threads, work, RUN_MILLIS) / (RUN_MILLIS / 1000.0);
+    }
+
+    private static long runFor(int threads, Work work, long millis) throws InterruptedException {
+        LongAdder ops = new LongAdder();
+        long end = System.nanoTime() + millis * 1_000_000;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                long n = 0;
+                try {
+                    while (System.nanoTime() < end) {
+                        for (int i = 0; i < 100; i++) {
+                            work.run();
+                        }
+                        n += 100;
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                ops.add(n);
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return ops.sum();
+    }
+}
@@ -0,0 +1,91 @@
+package com.pbe;
+
+import java.util.function.Function;
+
+// Result of an operation that either succeeded with a value, or failed with an error
+// An alternative to throwing: the caller gets the failure back as a normal return value and decides what to do with it
+// For int results without any allocation, see IntResult
+//
+// To move existing callers over step by step, catching() turns exception-style code into a Result,
+// and orElseThrow() turns a Result back into exception-style code
+public final class Result<T, E> {
+
+    private final T value;
+    private final E error;
+    private final boolean ok;
+
+    private Result(T value, E error, boolean ok) {
+        this.value = value;
+        this.error = error;
+        this.ok = ok;
+    }
+
+    static <T, E> Result<T, E> ok(T value) {
+        return new Result<>(value, null, true);
+    }
+
+    static <T, E> Result<T, E> error(E error) {
+        return new Result<>(null, error, false);
+    }
+
+    // Code that returns a value or throws an exception of type X (like a Supplier, but allowed to throw)
+    interface Attempt<T, X extends Exception> {
+        T get() throws X;
+    }
+
+    // Adapter from exception style: runs the attempt and returns its value as ok, or the caught exception of the given type as error
+    // Exceptions of other types are not caught
+    static <T, X extends Exception> Result<T, X> catching(Class<X> type, Attempt<T, ? extends X> attempt) {
+        try {
+            return ok(attempt.get());
+        } catch (Exception e) {
+            if (type.isInstance(e)) {
+                return error(type.cast(e));
+            }
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            throw new IllegalStateException(e); // not reachable: the only checked exceptions the attempt can throw are of type X
+        }
+    }
+
+    boolean isOk() {
+        return ok;
+    }
+
+    // The value, only to be called when isOk()
+    T value() {
+        if (!ok) {
+            throw new IllegalStateException("no value, result is an error: " + error);
+        }
+        return value;
+    }
+
+    // The error, only to be called when !isOk()
+    E error() {
+        if (ok) {
+            throw new IllegalStateException("no error, result is ok");
+        }
+        return error;
+    }
+
+    T orElse(T other) {
+        return ok ? value : other;
+    }
+
+    <U> Result<U, E> map(Function<? super T, ? extends U> mapper) {
+        return ok ? ok(mapper.apply(value)) : error(error);
+    }
+
+    // Adapter to exception style: returns the value, or throws the exception made from the error
+    <X extends Exception> T orElseThrow(Function<? super E, ? extends X> toException) throws X {
+        if (ok) {
+            return value;
+        }
+        throw toException.apply(error);
+    }
+
+    public String toString() {
+        return ok ? "Ok[" + value + "]" : "Error[" + error + "]";
+    }
+}
@@ -0,0 +1,34 @@
+package com.pbe;
+
+// Benchmark of the throw/catch paths against their IntResult alternatives, looking at latency percentiles (p50/p99/p99.9)
+// Averages hide the cost of the occasional failure; the p99 shows what a request actually pays when it hits one
+// - compute check: MyException with full stack trace, stackless MyException.of(), and ExceptionDemo.checkResult()
+// - divide: Main.divideEAFP (catching ArithmeticException) and Main.divideResult()
+// Note that each op is timed separately, so all numbers include the ~20-30 ns of System.nanoTime() itself
+public class ResultBenchmark {
+
+    static final double[] FAILURE_RATES = {0.01, 0.1, 0.5};
+    static final int OPS = 200_000;
+
+    public static void main(String[] args) {
+        for (double rate : FAILURE_RATES) {
+            boolean[] fail = Bench.failures(OPS, rate);
+            int[] input = new int[OPS];
+            int[] divisor = new int[OPS];
+            for (int i = 0; i < OPS; i++) {
+                input[i] = fail[i] ? 11 + (i % 100) : i % 10;
+                divisor[i] = fail[i] ? 0 : (i % 7) + 1;
+            }
+            int pct = (int) (rate * 100);
+
+            MyException.stackTraces = true;
+            Bench.percentiles("check, full trace   " + pct + "% failing", OPS, i -> MyExceptionBenchmark.callCheck(input[i]));
+            MyException.stackTraces = false;
+            Bench.percentiles("check, stackless    " + pct + "% failing", OPS, i -> MyExceptionBenchmark.callCheck(input[i]));
+            Bench.percentiles("checkResult         " + pct + "% failing", OPS, i -> IntResult.value(ExceptionDemo.checkResult(input[i])));
+            Bench.percentiles("divideEAFP          " + pct + "% failing", OPS, i -> Main.divideEAFP(i, divisor[i]));
+            Bench.percentiles("divideResult        " + pct + "% failing", OPS, i -> IntResult.orElse(Main.divideResult(i, divisor[i]), 0));
+            System.out.println();
+        }
+    }
+}
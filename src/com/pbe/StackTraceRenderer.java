@@ -0,0 +1,177 @@
+package com.pbe;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Renders stack traces once per distinct trace, for exceptions that keep repeating at the same place
+// (like the '/ by zero' in ExceptionPropagation.a or the out-of-bounds in Main.nesttry)
+// - a Throwable is fingerprinted by its type plus its StackTraceElement[] (and those of its causes); the message is left out,
+//   as it often contains values that differ per occurrence
+// - the first rendering of a fingerprint that's actually emitted shows the full stack trace text, which is cached;
+//   every other one only shows a one-line "seen N times" summary
+// - rendering is lazy: render() returns a Rendered, and no text is made until a sink calls toString() on it.
+//   Which one is first is decided then, not by render(): an occurrence that's never emitted doesn't use up the full trace
+// - the cache is an LRU of at most maxEntries fingerprints, so memory stays bounded however many exceptions come by;
+//   a fingerprint that was evicted simply counts as new again
+final class StackTraceRenderer {
+
+    static final int DEFAULT_MAX_ENTRIES = 1024;
+
+    // Number of causes taken into the fingerprint, which also protects against cause cycles
+    static final int MAX_CAUSE_DEPTH = 8;
+
+    private final Map<Fingerprint, Entry> cache;
+
+    StackTraceRenderer() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    StackTraceRenderer(int maxEntries) {
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) { // access order, for LRU
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Fingerprint, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    // Records an occurrence of t and returns its (not yet rendered) text
+    Rendered render(Throwable t) {
+        Fingerprint fingerprint = new Fingerprint(t);
+        Entry entry;
+        synchronized (cache) {
+            entry = cache.get(fingerprint);
+            if (entry == null) {
+                entry = new Entry();
+                cache.put(fingerprint, entry);
+            }
+        }
+        return new Rendered(t, entry, entry.count.incrementAndGet());
+    }
+
+    // Number of distinct fingerprints currently cached
+    int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    // Text of one occurrence; rendered when toString() is called
+    static final class Rendered {
+        private final Throwable throwable;
+        private final Entry entry;
+        private final long occurrence;
+        private volatile boolean first; // this one emitted the full trace, so it keeps rendering as that
+
+        private Rendered(Throwable throwable, Entry entry, long occurrence) {
+            this.throwable = throwable;
+            this.entry = entry;
+            this.occurrence = occurrence;
+        }
+
+        // True if this occurrence rendered as the full trace: the first of its stack trace to be emitted (by toString())
+        boolean isFirst() {
+            return first;
+        }
+
+        @Override
+        public String toString() {
+            if (first || entry.emitted.compareAndSet(false, true)) {
+                first = true;
+                return entry.fullText(throwable);
+            }
+            return throwable + " (same stack trace as before, seen " + occurrence + " times)";
+        }
+    }
+
+    private static final class Entry {
+        final AtomicLong count = new AtomicLong();
+        final AtomicBoolean emitted = new AtomicBoolean(); // the full trace has been claimed by a Rendered
+        private volatile String fullText;
+
+        String fullText(Throwable t) {
+            String text = fullText;
+            if (text == null) {
+                StringWriter sw = new StringWriter();
+                t.printStackTrace(new PrintWriter(sw));
+                text = sw.toString();
+                fullText = text;
+            }
+            return text;
+        }
+    }
+
+    // Type and stack trace of a Throwable and its causes, with the hash computed once
+    private static final class Fingerprint {
+        private final Class<?>[] types;
+        private final StackTraceElement[][] traces;
+        private final int hash;
+
+        Fingerprint(Throwable t) {
+            int depth = 0;
+            for (Throwable c = t; c != null && depth < MAX_CAUSE_DEPTH; c = c.getCause()) {
+                depth++;
+            }
+            types = new Class<?>[depth];
+            traces = new StackTraceElement[depth][];
+            int h = 1;
+            Throwable c = t;
+            for (int i = 0; i < depth; i++, c = c.getCause()) {
+                types[i] = c.getClass();
+                traces[i] = c.getStackTrace();
+                h = 31 * (31 * h + types[i].hashCode()) + Arrays.hashCode(traces[i]);
+            }
+            hash = h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Fingerprint)) {
+                return false;
+            }
+            Fingerprint other = (Fingerprint) o;
+            return hash == other.hash && Arrays.equals(types, other.types) && Arrays.deepEquals(traces, other.traces);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    // Demo: the same two exceptions over and over, then a million of them
+    public static void main(String[] args) {
+        StackTraceRenderer renderer = new StackTraceRenderer();
+        ExceptionPropagation propagation = new ExceptionPropagation();
+        for (int i = 0; i < 3; i++) {
+            try {
+                propagation.b();
+            } catch (ArithmeticException e) {
+                System.out.println(renderer.render(e));
+            }
+            try {
+                int[] c = {1};
+                c[10 + i] = 11;
+            } catch (ArrayIndexOutOfBoundsException e) {
+                System.out.println(renderer.render(e));
+            }
+        }
+
+        long start = System.nanoTime();
+        Rendered last = null;
+        for (int i = 0; i < 1_000_000; i++) {
+            try {
+                propagation.b();
+            } catch (ArithmeticException e) {
+                last = renderer.render(e); // not rendered to text: no sink asks for it
+            }
+        }
+        System.out.printf("%n1,000,000 more: %.0f ns each, %d fingerprints cached, last one: %s%n",
+                (System.nanoTime() - start) / 1e6, renderer.size(), last);
+    }
+}
@@ -0,0 +1,130 @@
+package com.pbe;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import jdk.jfr.consumer.RecordingStream;
+
+// Load generator running the exception demos as many concurrent tasks, to see how exception-heavy code scales
+// Each task runs one of the demos, failing or not depending on the failure ratio:
+// - ExceptionDemo.check (a > 10 throws MyException)
+// - Main.nesttry (a == 2: out-of-bounds caught inside, a == 1: '/ by zero' escapes)
+// - Main.throwtest (always throws, so it's only picked for a failing task)
+// - Main.methodA (throws through finally) or methodB/methodC (return / complete normally through finally)
+//
+// Tasks run on virtual threads (one per task) when the JVM supports them (Java 21+); on older JVMs they run on
+// a pool of platform threads instead, which is reported in the output. The number of tasks goes from 1k to 1M.
+// Reported per run: throughput, a latency histogram from submitting a task to its completion, and, on virtual threads,
+// the number of times a virtual thread was pinned to its carrier thread (JFR event jdk.VirtualThreadPinned).
+//
+// The demos print to System.out; during the run that output is discarded (the synchronized PrintStream is kept in the path).
+//
+// Usage: java com.pbe.StressHarness [failureRatio (default 0.1)] [maxTasks (default 1000000)]
+public class StressHarness {
+
+    static final int PLATFORM_THREADS = 256;
+
+    public static void main(String[] args) throws Exception {
+        double failureRatio = args.length > 0 ? Double.parseDouble(args[0]) : 0.1;
+        int maxTasks = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+
+        boolean virtual = virtualThreadsSupported();
+        System.out.println("Tasks run on " + (virtual ? "virtual threads" : "a pool of " + PLATFORM_THREADS
+                + " platform threads (virtual threads need Java 21+, this is " + Runtime.version() + ")")
+                + ", failure ratio " + failureRatio);
+
+        PrintStream console = System.out;
+        for (int tasks = 1_000; tasks <= maxTasks; tasks *= 10) {
+            LatencyHistogram latency = new LatencyHistogram();
+            AtomicLong failures = new AtomicLong();
+            AtomicLong pinned = new AtomicLong();
+            boolean[] fail = Bench.failures(tasks, failureRatio);
+
+            try (RecordingStream pinning = virtual ? pinningStream(pinned) : null) {
+                System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+                long start = System.nanoTime();
+                run(tasks, fail, virtual, latency, failures);
+                long elapsed = System.nanoTime() - start;
+                System.setOut(console);
+
+                System.out.printf("%,9d tasks: %,10.0f tasks/s, %,d failed%s%n", tasks, tasks / (elapsed / 1e9), failures.get(),
+                        pinning != null ? ", pinned " + pinned.get() + " times" : ""); // only counted while the stream records
+                System.out.println("                latency " + latency.summary(1000, "us"));
+            } finally {
+                System.setOut(console);
+            }
+        }
+    }
+
+    static void run(int tasks, boolean[] fail, boolean virtual, LatencyHistogram latency, AtomicLong failures) throws Exception {
+        CountDownLatch done = new CountDownLatch(tasks);
+        ExecutorService executor = virtual ? newVirtualThreadExecutor() : Executors.newFixedThreadPool(PLATFORM_THREADS);
+        try {
+            for (int i = 0; i < tasks; i++) {
+                int task = i;
+                long submitted = System.nanoTime();
+                executor.execute(() -> {
+                    if (!runDemo(task, fail[task])) {
+                        failures.incrementAndGet();
+                    }
+                    latency.record(System.nanoTime() - submitted);
+                    done.countDown();
+                });
+            }
+            done.await();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // Runs one of the demos; returns false if it ended with an exception
+    static boolean runDemo(int task, boolean fail) {
+        try {
+            switch (task & 3) {
+                case 0:
+                    ExceptionDemo.check(fail ? 20 : 1);
+                    break;
+                case 1:
+                    Main.nesttry(fail ? 1 : 2);
+                    break;
+                case 2:
+                    if (fail) {
+                        Main.throwtest();
+                    } else {
+                        Main.methodC();
+                    }
+                    break;
+                default:
+                    if (fail) {
+                        Main.methodA();
+                    } else {
+                        Main.methodB();
+                    }
+            }
+            return true;
+        } catch (MyException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    static boolean virtualThreadsSupported() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor(), called through reflection, so this class also compiles on Java 17
+    static ExecutorService newVirtualThreadExecutor() throws Exception {
+        return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    }
+
+    // Counts jdk.VirtualThreadPinned events while the stream is open
+    static RecordingStream pinningStream(AtomicLong pinned) {
+        RecordingStream stream = new RecordingStream();
+        stream.enable("jdk.VirtualThreadPinned").withoutThreshold();
+        stream.onEvent("jdk.VirtualThreadPinned", event -> pinned.incrementAndGet());
+        stream.startAsync();
+        return stream;
+    }
+}
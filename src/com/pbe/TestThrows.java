@@ -3,8 +3,12 @@ package com.pbe;
 import java.io.IOException;
 
 public class TestThrows {
+
+    // Counts the exceptions caught in c(), which are thrown in a()
+    static final ExceptionMetrics.Site A_SITE = ExceptionMetrics.site("TestThrows.a");
+
     void a() throws IOException {
-        throw new IOException("Error"); //checked exception
+        throw ExceptionEvent.emit(ExceptionEvent.TESTTHROWS_A, new IOException("Error"), 0); //checked exception
     }
 
     void b() throws IOException {
@@ -15,13 +19,38 @@ public class TestThrows {
         try {
             b();
         } catch (Exception e) {
-            System.out.println("Exception caught: " + e);
+            A_SITE.record(e);
+            AsyncLogger.log("Exception caught: ", e);
+        }
+    }
+
+    // The same chain with the error in the thread's ErrorSlot instead of unwinding, see ErrorSlot;
+    // the boundary in cSlot() turns it back into the IOException callers expect
+    int a(ErrorSlot slot) {
+        return slot.fail(ErrorCatalogue.READ_FAILED);
+    }
+
+    int b(ErrorSlot slot) {
+        int n = a(slot);
+        if (slot.failed()) {
+            return 0;
+        }
+        return n;
+    }
+
+    void cSlot() {
+        try {
+            ErrorSlot.call(this::b, slot -> new IOException(slot.message()));
+        } catch (IOException e) {
+            A_SITE.record(e);
+            AsyncLogger.log("Error returned: ", e);
         }
     }
 
     public static void main(String args[]) {
         TestThrows obj = new TestThrows();
         obj.c();
+        obj.cSlot();
         System.out.println("Program continues");
     }
 }
\ No newline at end of file